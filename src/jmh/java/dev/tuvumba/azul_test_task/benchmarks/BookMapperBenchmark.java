@@ -0,0 +1,75 @@
+package dev.tuvumba.azul_test_task.benchmarks;
+
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Compares the hand-written {@link BookMapper} with the reflective ModelMapper it replaced. <br>
+ *  The page has the default size of the list endpoints, each book has two authors and two genres.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookMapperBenchmark {
+
+    @Param({"10", "50"})
+    private int pageSize;
+
+    private BookMapper bookMapper;
+    private ModelMapper modelMapper;
+    private Book book;
+    private List<Book> page;
+
+    @Setup
+    public void setUp() {
+        bookMapper = new BookMapper(new AuthorMapper(), new GenreMapper());
+        modelMapper = new ModelMapper();
+        page = new ArrayList<>(pageSize);
+        for (long i = 0; i < pageSize; i++) {
+            page.add(book(9780132350884L + i));
+        }
+        book = page.get(0);
+    }
+
+    static Book book(long id) {
+        Author martin = new Author(1L, "Robert C. Martin", "Software engineer and author of Clean Code.", new ArrayList<>());
+        Author king = new Author(2L, "Stephen King", "Prolific writer known for horror and suspense novels.", new ArrayList<>());
+        Book book = new Book(id, List.of(martin, king), List.of(new Genre("Programming", new ArrayList<>()), new Genre("Thriller", new ArrayList<>())));
+        book.setName("Clean Code " + id);
+        book.setPrice(new BigDecimal("29.99"));
+        book.setQuantity(10);
+        return book;
+    }
+
+    @Benchmark
+    public BookDto toDto() {
+        return bookMapper.toDto(book);
+    }
+
+    @Benchmark
+    public BookDto toDtoModelMapper() {
+        return modelMapper.map(book, BookDto.class);
+    }
+
+    @Benchmark
+    public List<BookDto> toDtoList() {
+        return bookMapper.toDtoList(page);
+    }
+
+    @Benchmark
+    public List<BookDto> toDtoListModelMapper() {
+        return page.stream().map(b -> modelMapper.map(b, BookDto.class)).toList();
+    }
+}
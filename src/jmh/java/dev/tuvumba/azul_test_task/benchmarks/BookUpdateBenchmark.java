@@ -0,0 +1,101 @@
+package dev.tuvumba.azul_test_task.benchmarks;
+
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import dev.tuvumba.azul_test_task.repository.AuthorRepository;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.repository.GenreRepository;
+import dev.tuvumba.azul_test_task.service.BookCrudServiceImpl;
+import dev.tuvumba.azul_test_task.service.cache.BookCache;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.cache.GenreRegistry;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Patch application of {@link BookCrudServiceImpl#updateBook}, against in-memory repositories. <br>
+ *  Covers the type checks, the author lookup and the genre resolution, without any database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BookUpdateBenchmark {
+
+    private static final long ISBN = 9780132350884L;
+
+    private BookCrudServiceImpl bookService;
+    private Map<String, Object> scalarPatch;
+    private Map<String, Object> fullPatch;
+
+    @Setup
+    public void setUp() {
+        Map<Long, Book> books = new HashMap<>();
+        books.put(ISBN, BookMapperBenchmark.book(ISBN));
+
+        Map<Long, Author> authors = new HashMap<>();
+        for (Book book : books.values()) {
+            book.getAuthors().forEach(author -> authors.put(author.getId(), author));
+        }
+
+        BookRepository bookRepository = InMemoryStubs.stub(BookRepository.class, Map.of(
+                "findById", args -> Optional.ofNullable(books.get((Long) args[0])),
+                "save", args -> args[0],
+                "flush", args -> null));
+        AuthorRepository authorRepository = InMemoryStubs.stub(AuthorRepository.class, Map.of(
+                "findAllById", args -> {
+                    List<Author> found = new ArrayList<>();
+                    for (Object id : (Iterable<?>) args[0]) {
+                        Author author = authors.get((Long) id);
+                        if (author != null) {
+                            found.add(author);
+                        }
+                    }
+                    return found;
+                }));
+        GenreRepository genreRepository = InMemoryStubs.stub(GenreRepository.class, Map.of(
+                "findAllNames", args -> List.of("Programming", "Thriller", "Mystery")));
+
+        EntityManager entityManager = InMemoryStubs.stub(EntityManager.class, Map.of(
+                "getReference", args -> new Genre((String) args[1], new ArrayList<>())));
+
+        GenreRegistry genreRegistry = new GenreRegistry(genreRepository, entityManager);
+        genreRegistry.preload();
+
+        AuthorMapper authorMapper = new AuthorMapper();
+        GenreMapper genreMapper = new GenreMapper();
+        BookMapper bookMapper = new BookMapper(authorMapper, genreMapper);
+        bookService = new BookCrudServiceImpl(bookRepository, bookMapper, authorRepository, genreRegistry, null, bookMapper,
+                genreMapper, authorMapper, new BookCache(100, Duration.ofMinutes(1)), new CatalogVersion(), event -> { }, null, null);
+
+        scalarPatch = Map.of("price", 24.99, "quantity", 7, "name", "Clean Code, 2nd edition");
+        fullPatch = Map.of(
+                "price", "24.99",
+                "quantity", 7,
+                "name", "Clean Code, 2nd edition",
+                "authors", List.of(Map.of("id", 2), Map.of("id", 1)),
+                "genres", List.of("Mystery", "Programming"));
+    }
+
+    @Benchmark
+    public BookDto scalarFields() {
+        return bookService.updateBook(ISBN, scalarPatch);
+    }
+
+    @Benchmark
+    public BookDto allFields() {
+        return bookService.updateBook(ISBN, fullPatch);
+    }
+}
@@ -0,0 +1,26 @@
+package dev.tuvumba.azul_test_task.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ *  Builds stubs of repository interfaces backed by plain maps, so benchmarks measure the service code and not a mock framework. <br>
+ *  Only the named methods are implemented, any other call fails loudly.
+ */
+final class InMemoryStubs {
+
+    private InMemoryStubs() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> methods) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> implementation = methods.get(method.getName());
+            if (implementation == null) {
+                throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName() + " is not stubbed");
+            }
+            return implementation.apply(args);
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package dev.tuvumba.azul_test_task.benchmarks;
+
+import dev.tuvumba.azul_test_task.security.JwtAuthenticationCache;
+import dev.tuvumba.azul_test_task.security.JwtUtils;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Token checks done by {@code JwtFilter} on every authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtBenchmark {
+
+    // 512 bit test key, not the one of any deployment
+    private static final String SECRET = "Q2hhbmdlIG1lISBUaGlzIGlzIGEgYmVuY2htYXJrIGtleSB0aGF0IGlzIGxvbmcgZW5vdWdoIGZvciBIUzUxMiBzaWduaW5nLCBubyBtb3JlLg==";
+
+    private JwtUtils jwtUtils;
+    private JwtAuthenticationCache authenticationCache;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtils = new JwtUtils(SECRET);
+        authenticationCache = new JwtAuthenticationCache(jwtUtils, 100, Duration.ofMinutes(5));
+        token = jwtUtils.generateToken("admin", List.of("ADMIN"));
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtils.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUsername() {
+        return jwtUtils.getUsername(token);
+    }
+
+    @Benchmark
+    public List<String> extractRoles() {
+        return jwtUtils.extractRoles(token);
+    }
+
+    /**
+     * All three calls, as the filter makes them for one request.
+     */
+    @Benchmark
+    public void filterPath(Blackhole blackhole) {
+        blackhole.consume(jwtUtils.validateToken(token));
+        blackhole.consume(jwtUtils.getUsername(token));
+        blackhole.consume(jwtUtils.extractRoles(token));
+    }
+
+    /**
+     * What the filter does for a token it has already seen.
+     */
+    @Benchmark
+    public Object cachedAuthentication() {
+        return authenticationCache.authenticate(token);
+    }
+}
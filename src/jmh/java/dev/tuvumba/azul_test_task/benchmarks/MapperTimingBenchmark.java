@@ -0,0 +1,76 @@
+package dev.tuvumba.azul_test_task.benchmarks;
+
+import dev.tuvumba.azul_test_task.config.metrics.MapperTimingInterceptor;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.ProxyFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Cost of {@link MapperTimingInterceptor}: the plain mapper against one proxied as in the application,
+ *  where only a page of books is timed and mapping a single book goes through the proxy untimed. <br>
+ *  The difference of the page is paid once per request, compare it with the time of a whole request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MapperTimingBenchmark {
+
+    private BookMapper plain;
+    private BookMapper timed;
+    private Book book;
+    private List<Book> page;
+
+    @Setup
+    public void setUp() {
+        plain = new BookMapper(new AuthorMapper(), new GenreMapper());
+
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        // the advisor matches no method of the author and genre mappers, so the application does not proxy them
+        timed = proxy(new BookMapper(new AuthorMapper(), new GenreMapper()), MapperTimingInterceptor.advisor(() -> registry));
+
+        page = new ArrayList<>();
+        for (long i = 0; i < 10; i++) {
+            page.add(BookMapperBenchmark.book(9780132350884L + i));
+        }
+        book = page.get(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(T target, Advisor advisor) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(advisor);
+        return (T) factory.getProxy();
+    }
+
+    @Benchmark
+    public BookDto toDto() {
+        return plain.toDto(book);
+    }
+
+    @Benchmark
+    public BookDto toDtoTimed() {
+        return timed.toDto(book);
+    }
+
+    @Benchmark
+    public List<BookDto> toDtoList() {
+        return plain.toDtoList(page);
+    }
+
+    @Benchmark
+    public List<BookDto> toDtoListTimed() {
+        return timed.toDtoList(page);
+    }
+}
@@ -0,0 +1,46 @@
+package dev.tuvumba.azul_test_task.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.PaginatedResponse;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Writing a page of books to JSON, the last step of every list endpoint.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PaginatedResponseSerializationBenchmark {
+
+    @Param({"10", "50"})
+    private int pageSize;
+
+    private ObjectMapper objectMapper;
+    private PaginatedResponse<BookDto> page;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        List<Book> books = new ArrayList<>(pageSize);
+        for (long i = 0; i < pageSize; i++) {
+            books.add(BookMapperBenchmark.book(9780132350884L + i));
+        }
+        List<BookDto> dtos = new BookMapper(new AuthorMapper(), new GenreMapper()).toDtoList(books);
+        page = new PaginatedResponse<>(dtos, 100, 100L * pageSize, 0, pageSize);
+    }
+
+    @Benchmark
+    public byte[] writePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+}
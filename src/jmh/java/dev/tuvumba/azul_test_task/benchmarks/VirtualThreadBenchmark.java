@@ -0,0 +1,132 @@
+package dev.tuvumba.azul_test_task.benchmarks;
+
+import dev.tuvumba.azul_test_task.config.threads.ConnectionLimitingDataSource;
+import org.openjdk.jmh.annotations.*;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Bursts of concurrent requests served by Tomcat's default pool of 200 platform threads or by a virtual thread per request. <br>
+ *  A request holds a connection of a pool of 10 for a short query and blocks for longer outside of it
+ *  (e.g. writing the response to a slow client), both simulated with sleeps, so no database is needed.
+ *  {@link #burst()} scores the time of a whole burst, {@link #request()} samples single requests while the other clients
+ *  keep the server busy, so JMH reports their p50 and p99. <br>
+ *  As long as the connection pool is the bottleneck both modes perform the same, virtual threads pay off
+ *  once requests spend more time blocked outside of JDBC than the platform pool can cover.
+ *  Run with a Java 21 JVM, e.g. java -jar build/libs/*-jmh.jar VirtualThreadBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+public class VirtualThreadBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int POOL_SIZE = 10;
+
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"1000", "2000"})
+    public int clients;
+
+    @Param({"1"})
+    public int queryMillis;
+
+    @Param({"20", "100"})
+    public int blockingMillis;
+
+    private ExecutorService executor;
+    private DataSource dataSource;
+
+    /**
+     *  The other clients of {@link #request()}, each sends a request as soon as its previous one is answered.
+     */
+    @State(Scope.Benchmark)
+    public static class Load {
+
+        private final List<Thread> clients = new ArrayList<>();
+
+        @Setup(Level.Trial)
+        public void setUp(VirtualThreadBenchmark server) {
+            for (int i = 1; i < server.clients; i++) {
+                clients.add(Thread.ofVirtual().start(() -> {
+                    try {
+                        while (!Thread.currentThread().isInterrupted()) {
+                            server.submit().get();
+                        }
+                    } catch (InterruptedException | ExecutionException | RejectedExecutionException e) {
+                        // the trial is over
+                    }
+                }));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            clients.forEach(Thread::interrupt);
+            for (Thread client : clients) {
+                client.join();
+            }
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = mode.equals("virtual")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        DataSource pool = InMemoryStubs.stub(DataSource.class, Map.of(
+                "getConnection", args -> InMemoryStubs.stub(Connection.class, Map.of("close", closeArgs -> null))));
+        dataSource = new ConnectionLimitingDataSource(pool, POOL_SIZE, Duration.ofMinutes(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int burst() throws Exception {
+        List<Future<?>> requests = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            requests.add(submit());
+        }
+        for (Future<?> request : requests) {
+            request.get();
+        }
+        return requests.size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public Object request(Load load) throws Exception {
+        return submit().get();
+    }
+
+    private Future<?> submit() {
+        return executor.submit(() -> {
+            handle();
+            return null;
+        });
+    }
+
+    private void handle() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            Thread.sleep(queryMillis);
+        }
+        Thread.sleep(blockingMillis);
+    }
+}
@@ -1,12 +0,0 @@
-package dev.tuvumba.azul_test_task.config;
-
-import org.modelmapper.ModelMapper;
-import org.springframework.context.annotation.Bean;
-import org.springframework.context.annotation.Configuration;
-
-@Configuration
-public class ModelMapperConfig {
-    @Bean
-    public ModelMapper modelMapper() {return new ModelMapper();}
-}
-
@@ -30,6 +30,8 @@ public class SecurityConfig {
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) // stateless authentication
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/login", "/swagger-ui/**", "/v3/**").permitAll()
+                        // health checks come without a token, metrics are scraped with one like any other request
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll()
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
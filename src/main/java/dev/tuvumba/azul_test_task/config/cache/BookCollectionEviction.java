@@ -0,0 +1,38 @@
+package dev.tuvumba.azul_test_task.config.cache;
+
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ *  Drops the cached author and genre lists of all books after a catalog-wide change, see {@link BookChangedEvent}. <br>
+ *  Deleting an author or a genre removes its join rows through ON DELETE CASCADE in the database, which Hibernate does not see,
+ *  so the cached lists of its books would keep an ID that no longer resolves.
+ */
+public class BookCollectionEviction {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(BookCollectionEviction.class);
+
+    static final String AUTHORS_ROLE = Book.class.getName() + ".authors";
+    static final String GENRES_ROLE = Book.class.getName() + ".genres";
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public BookCollectionEviction(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!event.catalogWide()) {
+            return;
+        }
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        cache.evictCollectionData(AUTHORS_ROLE);
+        cache.evictCollectionData(GENRES_ROLE);
+        logger.debug("Evicted the cached author and genre lists of all books");
+    }
+}
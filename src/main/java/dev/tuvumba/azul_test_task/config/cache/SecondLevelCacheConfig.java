@@ -0,0 +1,85 @@
+package dev.tuvumba.azul_test_task.config.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ *  Hibernate second-level cache, kept in Caffeine through JCache. <br>
+ *  Holds authors, genres and the author and genre lists of books, so a book is mapped with one statement for its own row
+ *  and a page of books with the page query alone, see BookCrudServiceImpl. Book rows are not cached, their stock is changed with native SQL.
+ *  Regions are bounded and created here, a region missing from this list fails the startup instead of growing without a bound. <br>
+ *  Catalog-wide changes drop the author and genre lists of books, see {@link BookCollectionEviction}. <br>
+ *  Hit and miss counts per region are published as hibernate.second.level.cache.requests.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "books.l2-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class SecondLevelCacheConfig {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(SecondLevelCacheConfig.class);
+
+    // regions named in the @Cache annotations of the entities
+    public static final String AUTHORS = "authors";
+    public static final String GENRES = "genres";
+    public static final String BOOK_AUTHORS = "book-authors";
+    public static final String BOOK_GENRES = "book-genres";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager secondLevelCacheManager(@Value("${books.l2-cache.authors.max-size:10000}") long authors,
+                                                @Value("${books.l2-cache.genres.max-size:1000}") long genres,
+                                                @Value("${books.l2-cache.book-collections.max-size:50000}") long bookCollections,
+                                                @Value("${books.l2-cache.queries.max-size:1000}") long queries,
+                                                @Value("${books.l2-cache.ttl:1h}") Duration ttl) {
+        // a provider of its own, the shared one would hand the same regions to every application context in the JVM
+        CacheManager cacheManager = new CaffeineCachingProvider().getCacheManager();
+        createRegion(cacheManager, AUTHORS, authors, ttl);
+        createRegion(cacheManager, GENRES, genres, ttl);
+        createRegion(cacheManager, BOOK_AUTHORS, bookCollections, ttl);
+        createRegion(cacheManager, BOOK_GENRES, bookCollections, ttl);
+        createRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME, queries, ttl);
+        // last writes per table, a query result is reused only if none of its tables was written after it: must not expire
+        createRegion(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, null, null);
+        logger.debug("Second-level cache regions: {}", cacheManager.getCacheNames());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager secondLevelCacheManager) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, secondLevelCacheManager);
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            // hit ratios of the regions, without a log line of metrics for every session
+            properties.put(AvailableSettings.GENERATE_STATISTICS, true);
+            properties.put(AvailableSettings.LOG_SESSION_METRICS, false);
+        };
+    }
+
+    @Bean
+    public BookCollectionEviction bookCollectionEviction(EntityManagerFactory entityManagerFactory) {
+        return new BookCollectionEviction(entityManagerFactory);
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name, Long maxSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(maxSize == null ? OptionalLong.empty() : OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(ttl == null ? OptionalLong.empty() : OptionalLong.of(ttl.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        cacheManager.createCache(name, configuration);
+    }
+}
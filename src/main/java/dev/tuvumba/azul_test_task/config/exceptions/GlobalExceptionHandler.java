@@ -1,6 +1,7 @@
 package dev.tuvumba.azul_test_task.config.exceptions;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -20,6 +21,24 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(ApiErrorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<ApiErrorResponse> handleInsufficientStockException(InsufficientStockException ex) {
+        ApiErrorResponse ApiErrorResponse = new ApiErrorResponse(HttpStatus.CONFLICT, ex.getClass().toString(), ex);
+        return new ResponseEntity<>(ApiErrorResponse, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(PreconditionFailedException.class)
+    public ResponseEntity<ApiErrorResponse> handlePreconditionFailedException(PreconditionFailedException ex) {
+        ApiErrorResponse ApiErrorResponse = new ApiErrorResponse(HttpStatus.PRECONDITION_FAILED, ex.getClass().toString(), ex);
+        return new ResponseEntity<>(ApiErrorResponse, HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ApiErrorResponse> handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        ApiErrorResponse ApiErrorResponse = new ApiErrorResponse(HttpStatus.CONFLICT, ex.getClass().toString(), ex);
+        return new ResponseEntity<>(ApiErrorResponse, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(EntityNotFoundException.class)
     public ResponseEntity<ApiErrorResponse> handleEntityNotFoundException(EntityNotFoundException ex) {
         ApiErrorResponse ApiErrorResponse = new ApiErrorResponse(HttpStatus.NOT_FOUND, ex.getClass().toString(), ex);
@@ -0,0 +1,10 @@
+package dev.tuvumba.azul_test_task.config.exceptions;
+
+/**
+ *  Thrown when a reservation asks for more items than are in stock. Mapped to 409 CONFLICT.
+ */
+public class InsufficientStockException extends RuntimeException {
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,10 @@
+package dev.tuvumba.azul_test_task.config.exceptions;
+
+/**
+ *  Thrown when a conditional write finds the product at another version than the client expected. Mapped to 412 PRECONDITION FAILED.
+ */
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
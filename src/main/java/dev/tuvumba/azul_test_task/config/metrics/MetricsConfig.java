@@ -0,0 +1,21 @@
+package dev.tuvumba.azul_test_task.config.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ *  Metrics beyond what Spring Boot records on its own. <br>
+ *  Boot already times every request per endpoint (http.server.requests), every repository method (spring.data.repository.invocations)
+ *  and reports the connection pool (hikaricp.connections.*). Caches bind themselves, see BookCache.
+ */
+@Configuration(proxyBeanMethods = false)
+public class MetricsConfig {
+
+    @Bean
+    public static Advisor mapperTimingAdvisor(ObjectProvider<MeterRegistry> registry) {
+        return MapperTimingInterceptor.advisor(registry::getObject);
+    }
+}
@@ -0,0 +1,39 @@
+package dev.tuvumba.azul_test_task.config.sql;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ *  Adds the time of each JDBC execution (single statements and batches) to the {@link RequestStatements} of the current request. <br>
+ *  Hibernate creates one per session from its class name, a session runs one statement at a time.
+ */
+public class JdbcTimingListener implements SessionEventListener {
+
+    private long started;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        started = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        record();
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        started = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        record();
+    }
+
+    private void record() {
+        RequestStatements statements = RequestStatements.current();
+        if (statements != null) {
+            statements.jdbcTime(System.nanoTime() - started);
+        }
+    }
+}
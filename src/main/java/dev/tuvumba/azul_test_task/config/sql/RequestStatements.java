@@ -0,0 +1,81 @@
+package dev.tuvumba.azul_test_task.config.sql;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ *  SQL statements issued by Hibernate while one request is handled on the current thread, and the time JDBC took to run them. <br>
+ *  Filled by {@link StatementCountingInspector} and {@link JdbcTimingListener}, started and reported by {@link RequestStatementsFilter}.
+ *  Statements outside a request (scheduled flushes, startup) are not recorded.
+ */
+public final class RequestStatements {
+
+    private static final ThreadLocal<RequestStatements> CURRENT = new ThreadLocal<>();
+
+    // SQL text with placeholders, so the same query for different IDs is one entry
+    private final Map<String, Integer> executions = new HashMap<>();
+    private int count;
+    private long jdbcNanos;
+
+    private RequestStatements() {
+    }
+
+    public static RequestStatements start() {
+        RequestStatements statements = new RequestStatements();
+        CURRENT.set(statements);
+        return statements;
+    }
+
+    /**
+     * @return the statements of the request on this thread, null outside a request.
+     */
+    public static RequestStatements current() {
+        return CURRENT.get();
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    void statement(String sql) {
+        count++;
+        executions.merge(sql, 1, Integer::sum);
+    }
+
+    void jdbcTime(long nanos) {
+        jdbcNanos += nanos;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long jdbcNanos() {
+        return jdbcNanos;
+    }
+
+    /**
+     * @return the most times a single statement was issued.
+     */
+    public int maxRepeats() {
+        int max = 0;
+        for (int times : executions.values()) {
+            max = Math.max(max, times);
+        }
+        return max;
+    }
+
+    /**
+     * Statements issued at least the given number of times, the usual sign of a lazy association or a query per item in a loop (N+1).
+     */
+    public Map<String, Integer> repeated(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        executions.forEach((sql, times) -> {
+            if (times >= threshold) {
+                repeated.put(sql, times);
+            }
+        });
+        return repeated;
+    }
+}
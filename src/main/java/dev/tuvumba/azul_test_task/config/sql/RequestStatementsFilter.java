@@ -0,0 +1,124 @@
+package dev.tuvumba.azul_test_task.config.sql;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+/**
+ *  Records the SQL statements of each request and reports them in the response headers and the log. <br>
+ *  X-SQL-Statements is the number of statements, X-SQL-Repeats the most times a single one of them was issued,
+ *  and Server-Timing carries the time spent in JDBC (shown by browser dev tools). The headers are set when the body starts,
+ *  so a streamed response only reports what ran before it; the log line always has the totals. <br>
+ *  A statement issued repeat-threshold times or more is logged as a probable N+1.
+ */
+public class RequestStatementsFilter extends OncePerRequestFilter {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(RequestStatementsFilter.class);
+
+    public static final String STATEMENTS_HEADER = "X-SQL-Statements";
+    public static final String REPEATS_HEADER = "X-SQL-Repeats";
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private final int repeatThreshold;
+
+    public RequestStatementsFilter(int repeatThreshold) {
+        this.repeatThreshold = repeatThreshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RequestStatements statements = RequestStatements.start();
+        ReportingResponse reporting = new ReportingResponse(response, statements);
+        try {
+            filterChain.doFilter(request, reporting);
+        } finally {
+            RequestStatements.end();
+            reporting.report();
+            log(request, statements);
+        }
+    }
+
+    private void log(HttpServletRequest request, RequestStatements statements) {
+        if (statements.count() == 0) {
+            return;
+        }
+        String target = request.getMethod() + " " + request.getRequestURI();
+        logger.debug("{}: {} statements, {} ms in JDBC", target, statements.count(), millis(statements.jdbcNanos()));
+        statements.repeated(repeatThreshold).forEach((sql, times) ->
+                logger.warn("{}: probable N+1, the same statement ran {} times: {}", target, times, sql));
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Adds the headers right before the response is committed, i.e. when the body is opened, flushed or an error is sent.
+     */
+    private static final class ReportingResponse extends HttpServletResponseWrapper {
+
+        private final RequestStatements statements;
+        private boolean reported;
+
+        ReportingResponse(HttpServletResponse response, RequestStatements statements) {
+            super(response);
+            this.statements = statements;
+        }
+
+        void report() {
+            if (reported || isCommitted()) {
+                return;
+            }
+            reported = true;
+            setHeader(STATEMENTS_HEADER, String.valueOf(statements.count()));
+            setHeader(REPEATS_HEADER, String.valueOf(statements.maxRepeats()));
+            addHeader(SERVER_TIMING_HEADER, "db;dur=" + millis(statements.jdbcNanos()));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            report();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            report();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            report();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            report();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            report();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            report();
+            super.sendRedirect(location);
+        }
+    }
+}
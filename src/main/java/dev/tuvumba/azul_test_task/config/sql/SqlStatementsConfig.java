@@ -0,0 +1,39 @@
+package dev.tuvumba.azul_test_task.config.sql;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ *  Per-request SQL statement accounting, see {@link RequestStatementsFilter}. <br>
+ *  Hooks into Hibernate only, statements sent through JdbcTemplate (stock changes) are not counted.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(name = "books.sql.accounting", havingValue = "true", matchIfMissing = true)
+public class SqlStatementsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer statementAccountingCustomizer() {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, new StatementCountingInspector());
+            properties.put(AvailableSettings.AUTO_SESSION_EVENTS_LISTENER, JdbcTimingListener.class.getName());
+        };
+    }
+
+    /**
+     * First in the chain, so statements of the authentication are counted as well.
+     */
+    @Bean
+    public FilterRegistrationBean<RequestStatementsFilter> requestStatementsFilter(
+            @Value("${books.sql.repeat-threshold:10}") int repeatThreshold) {
+        FilterRegistrationBean<RequestStatementsFilter> registration =
+                new FilterRegistrationBean<>(new RequestStatementsFilter(repeatThreshold));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
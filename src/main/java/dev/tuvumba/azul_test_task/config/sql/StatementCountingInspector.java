@@ -0,0 +1,18 @@
+package dev.tuvumba.azul_test_task.config.sql;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ *  Counts every statement Hibernate prepares into the {@link RequestStatements} of the current request. The SQL is not changed.
+ */
+public class StatementCountingInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        RequestStatements statements = RequestStatements.current();
+        if (statements != null) {
+            statements.statement(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,61 @@
+package dev.tuvumba.azul_test_task.config.threads;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ *  Logs virtual threads that stayed pinned to their carrier thread for longer than a threshold. <br>
+ *  On Java 21 a virtual thread that blocks inside a synchronized block or method (e.g. on a JDBC call) keeps its carrier,
+ *  so a few of them can stall every other request. The JDK reports it as the jdk.VirtualThreadPinned flight recorder event,
+ *  which is streamed in-process here and logged with the stack that pinned the thread.
+ */
+public class PinnedThreadMonitor {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(PinnedThreadMonitor.class);
+
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+    private static final int LOGGED_FRAMES = 12;
+
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    public PinnedThreadMonitor(Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable(PINNED).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED, this::log);
+        stream.startAsync();
+        logger.info("Logging virtual threads pinned for more than {} ms", threshold.toMillis());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void log(RecordedEvent event) {
+        StringBuilder stack = new StringBuilder();
+        if (event.getStackTrace() != null) {
+            List<RecordedFrame> frames = event.getStackTrace().getFrames();
+            for (RecordedFrame frame : frames.subList(0, Math.min(LOGGED_FRAMES, frames.size()))) {
+                stack.append("\n\tat ").append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName())
+                        .append(':').append(frame.getLineNumber());
+            }
+        }
+        logger.warn("Virtual thread {} was pinned to its carrier for {} ms{}",
+                event.getThread() == null ? "?" : event.getThread().getJavaName(), event.getDuration().toMillis(), stack);
+    }
+}
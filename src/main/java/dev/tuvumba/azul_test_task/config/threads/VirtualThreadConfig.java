@@ -0,0 +1,57 @@
+package dev.tuvumba.azul_test_task.config.threads;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ *  Active with spring.threads.virtual.enabled=true, which makes Spring Boot serve requests and run scheduled and async tasks
+ *  on virtual threads instead of Tomcat's pool of platform threads. <br>
+ *  Adds what that mode needs around the blocking JPA calls: a limit of concurrent JDBC users matching the pool size
+ *  (see {@link ConnectionLimitingDataSource}) and diagnostics of pinned virtual threads (see {@link PinnedThreadMonitor}).
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    @Bean
+    public static BeanPostProcessor connectionLimitingDataSourcePostProcessor(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int maxConnections,
+            @Value("${books.jdbc.acquire-timeout:30s}") Duration acquireTimeout) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ConnectionLimitingDataSource)) {
+                    return new ConnectionLimitingDataSource(dataSource, maxConnections, acquireTimeout);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder connectionLimiterMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConnectionLimitingDataSource limiter) {
+                Gauge.builder("jdbc.connections.waiting", limiter, ConnectionLimitingDataSource::getWaiting)
+                        .description("Threads waiting for a permit to use a connection")
+                        .register(registry);
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "books.threads.pinned-diagnostics", havingValue = "true", matchIfMissing = true)
+    public PinnedThreadMonitor pinnedThreadMonitor(@Value("${books.threads.pinned-threshold:20ms}") Duration threshold) {
+        return new PinnedThreadMonitor(threshold);
+    }
+}
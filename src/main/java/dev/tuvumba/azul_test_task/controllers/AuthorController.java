@@ -6,6 +6,7 @@ import dev.tuvumba.azul_test_task.domain.Author;
 import dev.tuvumba.azul_test_task.domain.dto.AuthorDto;
 import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
 import dev.tuvumba.azul_test_task.repository.AuthorRepository;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -14,6 +15,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -28,11 +30,13 @@ public class AuthorController {
 
     private final AuthorRepository authorRepository;
     private final AuthorMapper authorMapper;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public AuthorController(AuthorRepository authorRepository, AuthorMapper authorMapper) {
+    public AuthorController(AuthorRepository authorRepository, AuthorMapper authorMapper, ApplicationEventPublisher eventPublisher) {
         this.authorRepository = authorRepository;
         this.authorMapper = authorMapper;
+        this.eventPublisher = eventPublisher;
     }
 
     @Operation(summary = "Get all authors", description = "Fetches a list of all authors. Accessible by everyone.", security = @SecurityRequirement(name = "BearerAuth"))
@@ -82,7 +86,10 @@ public class AuthorController {
     public ResponseEntity<AuthorDto> save(@RequestBody AuthorDto authorDto) {
         if(authorDto.getId() == null)
             throw new RuntimeException("Author's ID is empty");
-        return ResponseEntity.status(201).body(authorMapper.toDto(authorRepository.save(authorMapper.toEntity(authorDto))));
+        AuthorDto saved = authorMapper.toDto(authorRepository.save(authorMapper.toEntity(authorDto)));
+        // books embed their authors, so any of them may be stale now
+        eventPublisher.publishEvent(BookChangedEvent.everything());
+        return ResponseEntity.status(201).body(saved);
     }
 
     @Operation(summary = "Delete an author by ID",
@@ -97,6 +104,7 @@ public class AuthorController {
     public ResponseEntity<String> deleteById(@RequestParam Long id) {
         if(authorRepository.findById(id).isPresent()) {
             authorRepository.deleteById(id);
+            eventPublisher.publishEvent(BookChangedEvent.everything());
             return ResponseEntity.ok("Successfully deleted the author");
         }
         else {
@@ -4,12 +4,25 @@ import dev.tuvumba.azul_test_task.domain.Author;
 import dev.tuvumba.azul_test_task.domain.Genre;
 import dev.tuvumba.azul_test_task.domain.dto.AuthorDto;
 import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.BookFacetsDto;
+import dev.tuvumba.azul_test_task.domain.dto.BulkImportResult;
+import dev.tuvumba.azul_test_task.domain.dto.CacheStatsDto;
 import dev.tuvumba.azul_test_task.domain.dto.GenreDto;
 import dev.tuvumba.azul_test_task.domain.dto.PaginatedResponse;
+import dev.tuvumba.azul_test_task.domain.dto.StockLevelDto;
 import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
 import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import dev.tuvumba.azul_test_task.repository.specifications.BookSearchCriteria;
 import dev.tuvumba.azul_test_task.service.base.BookCrudService;
+import dev.tuvumba.azul_test_task.service.base.BookExportService;
+import dev.tuvumba.azul_test_task.service.base.BookFacetService;
+import dev.tuvumba.azul_test_task.service.base.BookImportService;
+import dev.tuvumba.azul_test_task.service.cache.BookCache;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.imports.BookImportFormat;
+import dev.tuvumba.azul_test_task.service.retry.OptimisticLockRetry;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -17,18 +30,26 @@ import io.swagger.v3.oas.annotations.parameters.RequestBody;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/books")
@@ -38,35 +59,147 @@ public class BookController {
     private final BookCrudService bookCrudService;
     private final GenreMapper genreMapper;
     private final AuthorMapper authorMapper;
-
-    public BookController(BookCrudService bookCrudService, GenreMapper genreMapper, AuthorMapper authorMapper) {
+    private final BookImportService bookImportService;
+    private final BookExportService bookExportService;
+    private final BookFacetService bookFacetService;
+    private final BookCache bookCache;
+    private final OptimisticLockRetry optimisticLockRetry;
+    private final CatalogVersion catalogVersion;
+
+    public BookController(BookCrudService bookCrudService, BookImportService bookImportService, BookExportService bookExportService,
+                          BookFacetService bookFacetService, GenreMapper genreMapper, AuthorMapper authorMapper, BookCache bookCache,
+                          OptimisticLockRetry optimisticLockRetry, CatalogVersion catalogVersion) {
         this.bookCrudService = bookCrudService;
+        this.bookImportService = bookImportService;
+        this.bookExportService = bookExportService;
+        this.bookFacetService = bookFacetService;
         this.genreMapper = genreMapper;
         this.authorMapper = authorMapper;
+        this.bookCache = bookCache;
+        this.optimisticLockRetry = optimisticLockRetry;
+        this.catalogVersion = catalogVersion;
+    }
+
+    private Sort prepareSort(String sortBy, boolean ascending) {
+        return ascending ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
     }
 
     private Pageable preparePageable(int page, int size, String sortBy, boolean ascending) {
-        Sort sort = ascending ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
-        return PageRequest.of(page, size, sort);
+        return PageRequest.of(page, size, prepareSort(sortBy, ascending));
+    }
+
+    /*
+        Conditional GET. The tag is known before anything is loaded, so a client that is up to date
+        gets 304 without a query, mapping or serialization.
+        no-cache lets clients keep the body and ask again with If-None-Match, instead of the no-store of Spring Security.
+     */
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private <T> ResponseEntity<T> notModified(String eTag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(REVALIDATE).build();
+    }
+
+    /**
+     * Lists of books are tagged with the version of the whole catalog.
+     */
+    private <T> ResponseEntity<T> catalogResponse(WebRequest request, Supplier<T> body) {
+        String eTag = catalogVersion.eTag();
+        if (request.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
+        return ResponseEntity.ok().eTag(eTag).cacheControl(REVALIDATE).body(body.get());
+    }
+
+    /**
+     * The version of a book is its ETag. "*" matches any version.
+     */
+    private Long parseIfMatch(String ifMatch) {
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        tag = tag.replace("\"", "");
+        // catalog-wide changes follow an @ and buffered stock changes a dot, the version is what the update is based on
+        int at = tag.indexOf('@');
+        if (at >= 0) {
+            tag = tag.substring(0, at);
+        }
+        int dot = tag.indexOf('.');
+        try {
+            return Long.parseLong(dot < 0 ? tag : tag.substring(0, dot));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid If-Match header, expected the ETag of the book.");
+        }
     }
 
     @Operation(summary = "Create/update a book", description = "Saves a book with the provided details." +
             "Implementation notes: Authors in the bookDto will be connected to existing authors by username or created given the details." +
-             "The ambiguous request error will occur when the provided author's username already exists but name differs. USERNAME is mandatory. Available only to ADMIN.")
+             "The ambiguous request error will occur when the provided author's username already exists but name differs. USERNAME is mandatory. " +
+            "With a version, the book is saved only if it is still at that version. Available only to ADMIN.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully created the book",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookDto.class))),
-            @ApiResponse(responseCode = "400", description = "Invalid input data")
+            @ApiResponse(responseCode = "400", description = "Invalid input data"),
+            @ApiResponse(responseCode = "409", description = "The book has been changed since the given version", content = @Content())
     })
     @PreAuthorize("hasRole('ADMIN')")
     @PostMapping
     public ResponseEntity<BookDto> save(@RequestBody BookDto book) {
-        Optional<BookDto> savedBook = bookCrudService.save(book);
+        // without a version the save overwrites the stored book, so it can be repeated after losing a race
+        Optional<BookDto> savedBook = book.getVersion() == null
+                ? optimisticLockRetry.run(() -> bookCrudService.save(book))
+                : bookCrudService.save(book);
         return savedBook.map(value -> new ResponseEntity<>(value, HttpStatus.OK)).orElseGet(() -> new ResponseEntity<>(HttpStatus.BAD_REQUEST));
     }
 
+    @Operation(summary = "Import books in bulk", description = "Creates or updates many books from a streamed file, committed in chunks. " +
+            "Send newline-delimited JSON (application/x-ndjson, one book per line, same shape as POST /books) " +
+            "or CSV (text/csv) with a header row of id,name,price,quantity,authors,genres where authors are author IDs and genres are genre names, both separated by ';'. " +
+            "Rows that fail are reported and skipped, the rest of the file is still imported. Available only to ADMIN.",
+            requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(content = {
+                    @Content(mediaType = "application/x-ndjson", examples = @ExampleObject(value =
+                            "{\"id\": 9780132350884, \"name\": \"Clean Architecture\", \"price\": 29.99, \"quantity\": 10, \"authors\": [{\"id\": 1}], \"genres\": [{\"name\": \"Programming\"}]}")),
+                    @Content(mediaType = "text/csv", examples = @ExampleObject(value =
+                            "id,name,price,quantity,authors,genres\n9780132350884,Clean Architecture,29.99,10,1,Programming"))}))
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Import finished, see the result for failed rows",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BulkImportResult.class))),
+            @ApiResponse(responseCode = "400", description = "Unsupported format or unreadable input", content = @Content())
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping(value = "/bulk", consumes = {"application/x-ndjson", "text/csv"})
+    public ResponseEntity<BulkImportResult> importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        return ResponseEntity.ok(bookImportService.importBooks(body, BookImportFormat.fromContentType(contentType)));
+    }
+
+    @Operation(summary = "Export all books", description = "Streams the whole catalog in ID order, in the formats of POST /books/bulk, so the file can be imported again. " +
+            "Choose the format with the Accept header: application/x-ndjson (default) or text/csv. " +
+            "Books are written as they are read from the database, memory use does not grow with the catalog. Available only to ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "All books, one per line", content = {
+                    @Content(mediaType = "application/x-ndjson"),
+                    @Content(mediaType = "text/csv")}),
+            @ApiResponse(responseCode = "406", description = "Unsupported format", content = @Content())
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping(value = "/export", produces = {"application/x-ndjson", "text/csv"})
+    public void exportBooks(@RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = "application/x-ndjson") String accept,
+                            HttpServletResponse response) throws IOException {
+        BookImportFormat format = BookImportFormat.fromAccept(accept);
+        response.setContentType(format.getMediaType().toString());
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=books." + format.name().toLowerCase(Locale.ROOT));
+        // written on the request thread straight into the response, nothing is collected in between
+        bookExportService.exportBooks(response.getOutputStream(), format);
+    }
+
     @Operation(summary = "Update an existing book", description = "Updates the details of an existing book. " +
-            "Please note that authors not present in the database will be created. Available only to ADMIN.",
+            "Please note that authors not present in the database will be created. " +
+            "Send the ETag of GET /books/{id} as If-Match to update only that version of the book, otherwise the update is retried on concurrent changes. Available only to ADMIN.",
             requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(
                     content = @Content(
                             mediaType = "application/json",
@@ -82,47 +215,108 @@ public class BookController {
             @ApiResponse(responseCode = "200", description = "Successfully updated the book",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = Map.class))),
             @ApiResponse(responseCode = "400", description = "Invalid input data", content = @Content()),
-            @ApiResponse(responseCode = "404", description = "Book not found", content = @Content())
+            @ApiResponse(responseCode = "404", description = "Book not found", content = @Content()),
+            @ApiResponse(responseCode = "409", description = "Kept conflicting with concurrent changes", content = @Content()),
+            @ApiResponse(responseCode = "412", description = "The book is not at the version given by If-Match", content = @Content())
     })
     @PreAuthorize("hasRole('ADMIN')")
     @PatchMapping("/{id}")
-    public ResponseEntity<BookDto> updateBook(@PathVariable Long id, @org.springframework.web.bind.annotation.RequestBody Map<String, Object> updates) {
+    public ResponseEntity<BookDto> updateBook(@PathVariable Long id, @org.springframework.web.bind.annotation.RequestBody Map<String, Object> updates,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
         /*
             Note the name conflict in between @org.springframework.web.bind.annotation.RequestBody and
             @io.swagger.v3.oas.annotations.parameters.RequestBody
          */
-        BookDto updatedBook = bookCrudService.updateBook(id, updates);
-        return ResponseEntity.ok(updatedBook);
+        Long expectedVersion = ifMatch == null ? null : parseIfMatch(ifMatch);
+        // the patch holds absolute values, so applying it again to a newer version is safe
+        BookDto updatedBook = expectedVersion == null
+                ? optimisticLockRetry.run(() -> bookCrudService.updateBook(id, updates))
+                : bookCrudService.updateBook(id, updates, expectedVersion);
+        return ResponseEntity.ok().eTag(bookCrudService.eTag(updatedBook)).body(updatedBook);
+    }
+
+
+    @Operation(summary = "Reserve stock of a book", description = "Takes the quantity out of stock in one atomic step, concurrent reservations never oversell. " +
+            "Use it instead of PATCH with an absolute quantity. Available to all.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully reserved, returns the stock left",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockLevelDto.class))),
+            @ApiResponse(responseCode = "400", description = "Quantity is not positive", content = @Content()),
+            @ApiResponse(responseCode = "404", description = "Book not found", content = @Content()),
+            @ApiResponse(responseCode = "409", description = "Insufficient stock", content = @Content())
+    })
+    @PostMapping("/{id}/reserve")
+    public ResponseEntity<StockLevelDto> reserve(@PathVariable Long id, @RequestParam(defaultValue = "1") int quantity) {
+        return ResponseEntity.ok(bookCrudService.reserve(id, quantity));
     }
 
+    @Operation(summary = "Release reserved stock of a book", description = "Puts the quantity back to stock in one atomic step, e.g. for a cancelled order. Available to all.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully released, returns the stock after the release",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = StockLevelDto.class))),
+            @ApiResponse(responseCode = "400", description = "Quantity is not positive", content = @Content()),
+            @ApiResponse(responseCode = "404", description = "Book not found", content = @Content())
+    })
+    @PostMapping("/{id}/release")
+    public ResponseEntity<StockLevelDto> release(@PathVariable Long id, @RequestParam(defaultValue = "1") int quantity) {
+        return ResponseEntity.ok(bookCrudService.release(id, quantity));
+    }
 
-    @Operation(summary = "Get all books", description = "Retrieves a paginated list of all books. Available to all.")
+    @Operation(summary = "Get all books", description = "Retrieves a paginated list of all books. Available to all." +
+            " Pass an empty cursor to switch to cursor paging: the response then has no totals, and its 'next' token is passed as the cursor to get the following page, which is as fast as the first one." +
+            " Set withCount=false to skip counting the totals when only hasNext is needed." +
+            " All lists of books carry the ETag of the catalog, send it as If-None-Match to get 304 while no book has changed.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved the list of books",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaginatedResponse.class))),
+            @ApiResponse(responseCode = "304", description = "No book has changed since the given ETag", content = @Content()),
     })
     @GetMapping
     public ResponseEntity<PaginatedResponse<BookDto>> findAll(
             @RequestParam(defaultValue = "0", name = "page") int page,
             @RequestParam(defaultValue = "10", name="size") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "true") boolean ascending) {
-        return ResponseEntity.ok(bookCrudService.findAll(preparePageable(page, size, sortBy, ascending)));
+            @RequestParam(defaultValue = "true") boolean ascending,
+            @RequestParam(defaultValue = "true") boolean withCount,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
+        return catalogResponse(request, () -> cursor != null
+                ? bookCrudService.findAll(cursor, size, prepareSort(sortBy, ascending))
+                : bookCrudService.findAll(preparePageable(page, size, sortBy, ascending), withCount));
     }
 
-    @Operation(summary = "Get a book by ID", description = "Retrieves a book by its ID. Available to all.")
+    @Operation(summary = "Get a book by ID", description = "Retrieves a book by its ID. Available to all." +
+            " The response has an ETag, send it as If-None-Match to get 304 while the book is unchanged.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved the book",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookDto.class))),
+            @ApiResponse(responseCode = "304", description = "The book has not changed since the given ETag", content = @Content()),
             @ApiResponse(responseCode = "404", description = "Book not found", content = @Content())
     })
     @GetMapping("/{id}")
-    public ResponseEntity<BookDto> findById(@PathVariable Long id) {
+    public ResponseEntity<BookDto> findById(@PathVariable Long id, WebRequest request) {
+        Optional<String> eTag = bookCrudService.findETag(id);
+        if (eTag.isPresent() && request.checkNotModified(eTag.get())) {
+            return notModified(eTag.get());
+        }
         Optional<BookDto> book = bookCrudService.findById(id);
-        return book.map(value -> new ResponseEntity<>(value, HttpStatus.OK)).orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+        return book.map(value -> ResponseEntity.ok().eTag(eTag.orElseGet(() -> bookCrudService.eTag(value))).cacheControl(REVALIDATE).body(value))
+                .orElseGet(() -> new ResponseEntity<>(HttpStatus.NOT_FOUND));
+    }
+
+    @Operation(summary = "Get book cache statistics", description = "Returns hit, miss and eviction counters of the book cache used by GET /books/{id}. Available only to ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the statistics",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = CacheStatsDto.class)))
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/cache/stats")
+    public ResponseEntity<CacheStatsDto> cacheStats() {
+        return ResponseEntity.ok(bookCache.stats());
     }
 
-    @Operation(summary = "Get books by genre", description = "Retrieves a paginated list of books filtered by genre. Available to all.")
+    @Operation(summary = "Get books by genre", description = "Retrieves a paginated list of books filtered by genre. Available to all." +
+            " Set withCount=false to skip counting the totals when only hasNext is needed.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved the books by genre",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaginatedResponse.class))),
@@ -133,13 +327,16 @@ public class BookController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "true") boolean ascending) {
+            @RequestParam(defaultValue = "true") boolean ascending,
+            @RequestParam(defaultValue = "true") boolean withCount,
+            WebRequest request) {
 
         Genre query = genreMapper.toEntity(genre);
-        return ResponseEntity.ok(bookCrudService.findByGenre(query, preparePageable(page, size, sortBy, ascending)));
+        return catalogResponse(request, () -> bookCrudService.findByGenre(query, preparePageable(page, size, sortBy, ascending), withCount));
     }
 
-    @Operation(summary = "Get books by author", description = "Retrieves a paginated list of books filtered by author. Available to all.")
+    @Operation(summary = "Get books by author", description = "Retrieves a paginated list of books filtered by author. Available to all." +
+            " Set withCount=false to skip counting the totals when only hasNext is needed.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved the books by author",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaginatedResponse.class))),
@@ -151,17 +348,23 @@ public class BookController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "true") boolean ascending) {
+            @RequestParam(defaultValue = "true") boolean ascending,
+            @RequestParam(defaultValue = "true") boolean withCount,
+            WebRequest request) {
 
+        String eTag = catalogVersion.eTag();
+        if (request.checkNotModified(eTag)) {
+            return notModified(eTag);
+        }
         AuthorDto authorDto = new AuthorDto();
         authorDto.setId(id);
         Author author = authorMapper.toEntity(authorDto);
-        PaginatedResponse<BookDto> response = bookCrudService.findByAuthor(author, preparePageable(page, size, sortBy, ascending));
+        PaginatedResponse<BookDto> response = bookCrudService.findByAuthor(author, preparePageable(page, size, sortBy, ascending), withCount);
         if(response == null) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         } else
         {
-            return new ResponseEntity<>(response, HttpStatus.OK);
+            return ResponseEntity.ok().eTag(eTag).cacheControl(REVALIDATE).body(response);
         }
     }
 
@@ -171,12 +374,12 @@ public class BookController {
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookDto.class))),
     })
     @GetMapping("/title")
-    public ResponseEntity<List<BookDto>> findByTitle(@RequestParam String title) {
-        List<BookDto> book = bookCrudService.findByTitle(title);
-        return new ResponseEntity<>(book, HttpStatus.OK);
+    public ResponseEntity<List<BookDto>> findByTitle(@RequestParam String title, WebRequest request) {
+        return catalogResponse(request, () -> bookCrudService.findByTitle(title));
     }
 
-    @Operation(summary = "Get books by title containing a string", description = "Retrieves a paginated list of books whose titles contain the specified string. Available to all.")
+    @Operation(summary = "Get books by title containing a string", description = "Retrieves a paginated list of books whose titles contain the specified string. Available to all." +
+            " Set withCount=false to skip counting the totals when only hasNext is needed.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved the books by title",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaginatedResponse.class))),
@@ -187,13 +390,16 @@ public class BookController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "true") boolean ascending) {
+            @RequestParam(defaultValue = "true") boolean ascending,
+            @RequestParam(defaultValue = "true") boolean withCount,
+            WebRequest request) {
 
-        return ResponseEntity.ok(bookCrudService.findByTitleContaining(title, preparePageable(page, size, sortBy, ascending)));
+        return catalogResponse(request, () -> bookCrudService.findByTitleContaining(title, preparePageable(page, size, sortBy, ascending), withCount));
     }
 
 
-    @Operation(summary = "Get books by author name containing a string", description = "Retrieves a paginated list of books whose author's names contain the specified string. Available to all.")
+    @Operation(summary = "Get books by author name containing a string", description = "Retrieves a paginated list of books whose author's names contain the specified string. Available to all." +
+            " Set withCount=false to skip counting the totals when only hasNext is needed.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved the books by author name",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaginatedResponse.class))),
@@ -204,12 +410,73 @@ public class BookController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "true") boolean ascending) {
+            @RequestParam(defaultValue = "true") boolean ascending,
+            @RequestParam(defaultValue = "true") boolean withCount,
+            WebRequest request) {
 
-        return ResponseEntity.ok(bookCrudService.findByAuthorNameContaining(name, preparePageable(page, size, sortBy, ascending)));
+        return catalogResponse(request, () -> bookCrudService.findByAuthorNameContaining(name, preparePageable(page, size, sortBy, ascending), withCount));
     }
 
-    @Operation(summary = "Get books within a price range", description = "Retrieves a paginated list of books with prices between the specified range. Available to all.")
+    @Operation(summary = "Search books by several criteria", description = "Retrieves a paginated list of books matching every given filter, in a single query. " +
+            "All filters are optional: title and author are case-insensitive fragments, authorId is the ID of one of the authors, genre is the name of one of the genres, " +
+            "and the price and quantity ranges are inclusive, with either bound optional. Available to all." +
+            " Pass an empty cursor to switch to cursor paging, see GET /books/price." +
+            " Set withCount=false to skip counting the totals when only hasNext is needed.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the matching books",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaginatedResponse.class))),
+            @ApiResponse(responseCode = "400", description = "A range with its lower bound above its upper bound, or an unknown sort property", content = @Content())
+    })
+    @GetMapping("/search")
+    public ResponseEntity<PaginatedResponse<BookDto>> search(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) Long authorId,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String genre,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer minQuantity,
+            @RequestParam(required = false) Integer maxQuantity,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "id") String sortBy,
+            @RequestParam(defaultValue = "true") boolean ascending,
+            @RequestParam(defaultValue = "true") boolean withCount,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
+
+        BookSearchCriteria criteria = new BookSearchCriteria(title, authorId, author, genre, minPrice, maxPrice, minQuantity, maxQuantity);
+        return catalogResponse(request, () -> cursor != null
+                ? bookCrudService.search(criteria, cursor, size, prepareSort(sortBy, ascending))
+                : bookCrudService.search(criteria, preparePageable(page, size, sortBy, ascending), withCount));
+    }
+
+    @Operation(summary = "Count books per facet", description = "Returns the number of books per genre, per author (the most frequent ones) and per price bucket, " +
+            "among the books matching the same filters as GET /books/search, all of them optional. Available to all.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully counted the books",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = BookFacetsDto.class))),
+            @ApiResponse(responseCode = "400", description = "A range with its lower bound above its upper bound", content = @Content())
+    })
+    @GetMapping("/facets")
+    public ResponseEntity<BookFacetsDto> facets(
+            @RequestParam(required = false) String title,
+            @RequestParam(required = false) Long authorId,
+            @RequestParam(required = false) String author,
+            @RequestParam(required = false) String genre,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) Integer minQuantity,
+            @RequestParam(required = false) Integer maxQuantity,
+            WebRequest request) {
+
+        BookSearchCriteria criteria = new BookSearchCriteria(title, authorId, author, genre, minPrice, maxPrice, minQuantity, maxQuantity);
+        return catalogResponse(request, () -> bookFacetService.facets(criteria));
+    }
+
+    @Operation(summary = "Get books within a price range", description = "Retrieves a paginated list of books with prices between the specified range. Available to all." +
+            " Pass an empty cursor to switch to cursor paging: the response then has no totals, and its 'next' token is passed as the cursor to get the following page, which is as fast as the first one." +
+            " Set withCount=false to skip counting the totals when only hasNext is needed.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved books",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaginatedResponse.class)))
@@ -221,7 +488,10 @@ public class BookController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "true") boolean ascending) {
+            @RequestParam(defaultValue = "true") boolean ascending,
+            @RequestParam(defaultValue = "true") boolean withCount,
+            @RequestParam(required = false) String cursor,
+            WebRequest request) {
 
 
         if(from.compareTo(to) > 0) {
@@ -231,13 +501,18 @@ public class BookController {
             to = from;
             from = temp;
         }
-        PaginatedResponse<BookDto> books = bookCrudService.findByPriceBetween(from, to, preparePageable(page, size, sortBy, ascending));
-        return new ResponseEntity<>(books, HttpStatus.OK);
+        BigDecimal low = from;
+        BigDecimal high = to;
+        return catalogResponse(request, () -> cursor != null
+                ? bookCrudService.findByPriceBetween(low, high, cursor, size, prepareSort(sortBy, ascending))
+                : bookCrudService.findByPriceBetween(low, high, preparePageable(page, size, sortBy, ascending), withCount));
     }
 
 
     @Operation(summary = "Get books by quantity range",
-            description = "Retrieves a paginated list of books with a quantity between the specified range. Available to all.")
+            description = "Retrieves a paginated list of books with a quantity between the specified range. Available to all." +
+            " Pass an empty cursor to switch to cursor paging: the response then has no totals, and its 'next' token is passed as the cursor to get the following page, which is as fast as the first one." +
+            " Set withCount=false to skip counting the totals when only hasNext is needed.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved books",
                     content = @Content(mediaType = "application/json", schema = @Schema(implementation = PaginatedResponse.class))),
@@ -250,7 +525,10 @@ public class BookController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "true") boolean ascending){
+            @RequestParam(defaultValue = "true") boolean ascending,
+            @RequestParam(defaultValue = "true") boolean withCount,
+            @RequestParam(required = false) String cursor,
+            WebRequest request){
 
         if(from < 0 || to < 0)
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -264,12 +542,15 @@ public class BookController {
             from ^= to;
         }
 
-        PaginatedResponse<BookDto> books = bookCrudService.findByQuantityBetween(from, to, preparePageable(page, size, sortBy, ascending));
-        return new ResponseEntity<>(books, HttpStatus.OK);
+        int low = from;
+        int high = to;
+        return catalogResponse(request, () -> cursor != null
+                ? bookCrudService.findByQuantityBetween(low, high, cursor, size, prepareSort(sortBy, ascending))
+                : bookCrudService.findByQuantityBetween(low, high, preparePageable(page, size, sortBy, ascending), withCount));
     }
 
 
-    @Operation(summary = "Delete a book", description = "Deletes a book by its ID. Available to all.")
+    @Operation(summary = "Delete a book", description = "Deletes a book by its ID, authors left without books are deleted as well. Available only to ADMIN.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "204", description = "Successfully deleted the book"),
             @ApiResponse(responseCode = "404", description = "Book not found")
@@ -277,14 +558,23 @@ public class BookController {
     @PreAuthorize("hasRole('ADMIN')")
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
-        Optional<BookDto> book = bookCrudService.findById(id);
-        if(book.isPresent()) {
-            bookCrudService.delete(id);
-            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
-        } else
-        {
+        if (bookCrudService.deleteAll(List.of(id)).isEmpty()) {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
+        return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+    }
+
+    @Operation(summary = "Delete many books", description = "Deletes the books with the given IDs in one transaction, authors left without books are deleted as well. " +
+            "IDs of books that do not exist are skipped. At most 5000 IDs per request. Available only to ADMIN.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "IDs of the deleted books",
+                    content = @Content(mediaType = "application/json", array = @ArraySchema(schema = @Schema(implementation = Long.class)))),
+            @ApiResponse(responseCode = "400", description = "Too many IDs or a null ID", content = @Content())
+    })
+    @PreAuthorize("hasRole('ADMIN')")
+    @DeleteMapping
+    public ResponseEntity<List<Long>> deleteAll(@org.springframework.web.bind.annotation.RequestBody List<Long> ids) {
+        return ResponseEntity.ok(bookCrudService.deleteAll(ids));
     }
 }
 
@@ -4,6 +4,8 @@ import dev.tuvumba.azul_test_task.domain.Genre;
 import dev.tuvumba.azul_test_task.domain.dto.GenreDto;
 import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
 import dev.tuvumba.azul_test_task.repository.GenreRepository;
+import dev.tuvumba.azul_test_task.service.cache.GenreRegistry;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -11,6 +13,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -26,11 +29,15 @@ public class GenreController {
 
     private final GenreRepository genreRepository;
     private final GenreMapper genreMapper;
+    private final GenreRegistry genreRegistry;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public GenreController(GenreRepository genreRepository, GenreMapper genreMapper) {
+    public GenreController(GenreRepository genreRepository, GenreMapper genreMapper, GenreRegistry genreRegistry, ApplicationEventPublisher eventPublisher) {
         this.genreRepository = genreRepository;
         this.genreMapper = genreMapper;
+        this.genreRegistry = genreRegistry;
+        this.eventPublisher = eventPublisher;
     }
 
     @Operation(summary = "Get all genres", description = "Retrieves a list of all genres. Available to all.")
@@ -90,6 +97,9 @@ public class GenreController {
         Optional<Genre> genre = genreRepository.findById(name);
         if (genre.isPresent()) {
             genreRepository.deleteById(name);
+            genreRegistry.forget(name);
+            // deleting a genre cascades to book_genre
+            eventPublisher.publishEvent(BookChangedEvent.everything());
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         } else {
             return ResponseEntity.notFound().build();
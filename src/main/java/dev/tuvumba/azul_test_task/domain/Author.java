@@ -7,6 +7,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -14,10 +16,13 @@ import java.util.List;
 /**
  *  Represents an Author with username(unique) and display name.
  *  This class is simplistic and could be greatly expanded
- *  if we wish to implement additional functionality
+ *  if we wish to implement additional functionality. <br>
+ *  Kept in the second-level cache, see SecondLevelCacheConfig.
  */
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "authors")
 @NoArgsConstructor
 @AllArgsConstructor
 @ToString(exclude = {"books"})
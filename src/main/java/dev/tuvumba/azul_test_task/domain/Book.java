@@ -5,6 +5,9 @@ import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import dev.tuvumba.azul_test_task.domain.base.Product;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -12,7 +15,10 @@ import java.util.List;
 
 /**
  *  A class representing a Book, which extends the Product.
- *  Additions: ID, Authors and Genres.
+ *  Additions: ID, Authors and Genres. <br>
+ *  The lists of authors and genres are kept in the second-level cache, the book itself is not:
+ *  stock changes update its row with native SQL, which the cache would not see.
+ *  A list missing from the cache is loaded together with the missing lists of the other books in the session, in one query.
  */
 @EqualsAndHashCode(callSuper = false)
 @Entity
@@ -27,6 +33,8 @@ public class Book extends Product {
     private Long id; // intended to be ISBN, can be extended with correctness checks
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book-authors")
+    @BatchSize(size = 500)
     @JoinTable(
             name = "book_author",
             joinColumns = @JoinColumn(name = "book_id"),
@@ -35,6 +43,8 @@ public class Book extends Product {
     private List<Author> authors = new ArrayList<>();
 
     @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book-genres")
+    @BatchSize(size = 500)
     @JoinTable(
             name = "book_genre",
             joinColumns = @JoinColumn(name = "book_id"),
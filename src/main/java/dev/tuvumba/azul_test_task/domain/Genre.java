@@ -2,6 +2,7 @@ package dev.tuvumba.azul_test_task.domain;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.ManyToMany;
@@ -9,6 +10,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,10 +20,13 @@ import java.util.List;
 /**
  *  Represents a book genre. <br>
  *  Uses genre name for ID. <br>
- *  Possible extensions: metadata, subgenres.
+ *  Possible extensions: metadata, subgenres. <br>
+ *  Kept in the second-level cache, see SecondLevelCacheConfig.
  */
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "genres")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -1,6 +1,7 @@
 package dev.tuvumba.azul_test_task.domain.base;
 
 import jakarta.persistence.MappedSuperclass;
+import jakarta.persistence.Version;
 import lombok.Data;
 
 import java.math.BigDecimal;
@@ -16,6 +17,11 @@ public abstract class Product {
     protected BigDecimal price;
     protected int quantity;
 
+    // Incremented on every write, a write based on an older version fails instead of silently overwriting a newer one.
+    // Primitive on purpose: IDs are assigned (ISBN), so Spring Data has to tell new products by the ID and not by a null version.
+    @Version
+    protected long version;
+
     public void setPrice(BigDecimal price) {
         // In current implementation, we allow the price of ZERO. (Gift, Promotional stunt, etc.)
         // price is >= 0
@@ -0,0 +1,25 @@
+package dev.tuvumba.azul_test_task.domain.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ *  Counts of books per genre, per author and per price bucket, among the books matching a search.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookFacetsDto {
+    @Schema(description = "Number of matching books", example = "120")
+    private long total;
+    @Schema(description = "Every genre of the matching books, most frequent first")
+    private List<FacetCountDto> genres;
+    @Schema(description = "The most frequent authors of the matching books")
+    private List<FacetCountDto> authors;
+    @Schema(description = "Price buckets in ascending order, empty ones included")
+    private List<PriceBucketDto> prices;
+}
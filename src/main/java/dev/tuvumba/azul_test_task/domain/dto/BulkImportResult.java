@@ -0,0 +1,39 @@
+package dev.tuvumba.azul_test_task.domain.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  Outcome of a bulk import. <br>
+ *  Only the first failures are listed, so the response stays small for any file size.
+ */
+@Data
+@NoArgsConstructor
+public class BulkImportResult {
+    @Schema(example = "100000")
+    private long rowsRead;
+    @Schema(example = "99998")
+    private long imported;
+    @Schema(example = "2")
+    private long failed;
+    private List<RowFailure> failures = new ArrayList<>();
+    @Schema(example = "false")
+    private boolean failuresTruncated;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowFailure {
+        @Schema(example = "42")
+        private long line;
+        @Schema(example = "9780136083238")
+        private Long id;
+        @Schema(example = "Price cannot be negative.")
+        private String message;
+    }
+}
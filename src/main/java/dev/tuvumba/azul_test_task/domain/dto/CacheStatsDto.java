@@ -0,0 +1,25 @@
+package dev.tuvumba.azul_test_task.domain.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ *  Counters of an in-memory cache, collected since the application start.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStatsDto {
+    @Schema(example = "1520")
+    private long hitCount;
+    @Schema(example = "80")
+    private long missCount;
+    @Schema(example = "3")
+    private long evictionCount;
+    @Schema(example = "0.95")
+    private double hitRate;
+    @Schema(example = "77")
+    private long size;
+}
@@ -0,0 +1,23 @@
+package dev.tuvumba.azul_test_task.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ *  Number of books sharing one value of a facet, e.g. one genre or one author.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FacetCountDto {
+    @Schema(description = "Value to filter by: the genre name or the author ID", example = "Mystery")
+    private String value;
+    @Schema(description = "Display name, if different from the value", example = "Agatha Christie")
+    private String label;
+    @Schema(example = "42")
+    private long count;
+}
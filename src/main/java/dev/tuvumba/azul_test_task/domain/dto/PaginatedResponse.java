@@ -1,16 +1,20 @@
 package dev.tuvumba.azul_test_task.domain.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.Setter;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
 /**
  *
  * A generic paginated response wrapper. <br>
- * Includes: totalPages, totalElements, page and size.
+ * Includes: totalPages, totalElements, page, size and hasNext. <br>
+ * Without counting (slice and cursor modes) the totals are absent and only hasNext tells if there is more.
+ * In cursor mode {@code next} holds the cursor of the following page (absent on the last one).
  * @param <T> Response will hold a list of elements of this class.
  */
 
@@ -18,18 +22,33 @@ import java.util.List;
 @Data
 @AllArgsConstructor
 @Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PaginatedResponse<T> {
     private List<T> list;
-    private long totalPages;
-    private long totalElements;
+    private Long totalPages;
+    private Long totalElements;
     private int page;
     private int size;
+    private boolean hasNext;
+    private String next;
+
+    public PaginatedResponse(List<T> list, long totalPages, long totalElements, int page, int size) {
+        this(list, totalPages, totalElements, page, size, page + 1 < totalPages, null);
+    }
 
     public PaginatedResponse(Page<T> page) {
-        this.list = page.getContent();
-        this.totalPages = page.getTotalPages();
-        this.totalElements = page.getTotalElements();
-        this.page = page.getNumber();
-        this.size = page.getSize();
+        this(page.getContent(), page.getTotalPages(), page.getTotalElements(), page.getNumber(), page.getSize());
+    }
+
+    public PaginatedResponse(Slice<T> slice) {
+        this(slice.getContent(), null, null, slice.getNumber(), slice.getSize(), slice.hasNext(), null);
+    }
+
+    public static <T> PaginatedResponse<T> ofSlice(List<T> list, int page, int size, boolean hasNext) {
+        return new PaginatedResponse<>(list, null, null, page, size, hasNext, null);
+    }
+
+    public static <T> PaginatedResponse<T> ofCursor(List<T> list, int size, String next) {
+        return new PaginatedResponse<>(list, null, null, 0, size, next != null, next);
     }
 }
@@ -0,0 +1,25 @@
+package dev.tuvumba.azul_test_task.domain.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ *  Number of books priced within [from, to). The last bucket has no upper bound.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PriceBucketDto {
+    @Schema(example = "10")
+    private BigDecimal from;
+    @Schema(example = "20")
+    private BigDecimal to;
+    @Schema(example = "17")
+    private long count;
+}
@@ -18,4 +18,6 @@ public abstract class ProductDto {
     BigDecimal price;
     @Schema(example = "5")
     int quantity;
+    @Schema(example = "3", description = "Version the client has seen. When set on save, the save fails if the product has been changed since.")
+    Long version;
 }
@@ -0,0 +1,19 @@
+package dev.tuvumba.azul_test_task.domain.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ *  Stock of a product right after a reservation or a release.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockLevelDto {
+    @Schema(example = "9780132350884")
+    private Long id;
+    @Schema(example = "4")
+    private int quantity;
+}
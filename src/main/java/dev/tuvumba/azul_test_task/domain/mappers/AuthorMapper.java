@@ -2,38 +2,52 @@ package dev.tuvumba.azul_test_task.domain.mappers;
 
 import dev.tuvumba.azul_test_task.domain.Author;
 import dev.tuvumba.azul_test_task.domain.dto.AuthorDto;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
 public class AuthorMapper implements Mapper<Author, AuthorDto> {
 
-    private final ModelMapper modelMapper;
-
-    public AuthorMapper(ModelMapper modelMapper) {
-        this.modelMapper = modelMapper;
-    }
-
+    /**
+     * Books of the author are not mapped, the DTO does not carry them.
+     */
     @Override
     public Author toEntity(AuthorDto authorDto) {
-        return modelMapper.map(authorDto, Author.class);
+        if (authorDto == null) {
+            return null;
+        }
+        Author author = new Author();
+        author.setId(authorDto.getId());
+        author.setDisplayName(authorDto.getDisplayName());
+        author.setDescription(authorDto.getDescription());
+        return author;
     }
 
     @Override
     public AuthorDto toDto(Author author) {
-       return modelMapper.map(author, AuthorDto.class);
+        if (author == null) {
+            return null;
+        }
+        return new AuthorDto(author.getId(), author.getDisplayName(), author.getDescription());
     }
 
     @Override
     public List<AuthorDto> toDtoList(List<Author> authors) {
-        return authors.stream().map(this::toDto).toList();
+        List<AuthorDto> dtos = new ArrayList<>(authors.size());
+        for (Author author : authors) {
+            dtos.add(toDto(author));
+        }
+        return dtos;
     }
 
     @Override
     public List<Author> toEntityList(List<AuthorDto> authorDtos) {
-        return authorDtos.stream().map(this::toEntity).toList();
+        List<Author> authors = new ArrayList<>(authorDtos.size());
+        for (AuthorDto authorDto : authorDtos) {
+            authors.add(toEntity(authorDto));
+        }
+        return authors;
     }
 }
-
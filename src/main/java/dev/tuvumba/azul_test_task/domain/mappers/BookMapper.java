@@ -2,38 +2,79 @@ package dev.tuvumba.azul_test_task.domain.mappers;
 
 import dev.tuvumba.azul_test_task.domain.Book;
 import dev.tuvumba.azul_test_task.domain.dto.BookDto;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
 public class BookMapper implements Mapper<Book, BookDto> {
 
-    private final ModelMapper modelMapper;
+    private final AuthorMapper authorMapper;
+    private final GenreMapper genreMapper;
 
-    public BookMapper(ModelMapper modelMapper) {
-        this.modelMapper = modelMapper;
+    public BookMapper(AuthorMapper authorMapper, GenreMapper genreMapper) {
+        this.authorMapper = authorMapper;
+        this.genreMapper = genreMapper;
     }
 
+    /**
+     * Authors and genres are mapped as detached entities holding only their own fields. <br>
+     * Missing lists become empty ones, since Hibernate expects the collections to be there.
+     */
     @Override
     public Book toEntity(BookDto bookDto) {
-       return modelMapper.map(bookDto, Book.class);
+        if (bookDto == null) {
+            return null;
+        }
+        Book book = new Book();
+        book.setId(bookDto.getId());
+        book.setName(bookDto.getName());
+        if (bookDto.getPrice() != null) {
+            book.setPrice(bookDto.getPrice());
+        }
+        book.setQuantity(bookDto.getQuantity());
+        if (bookDto.getVersion() != null) {
+            book.setVersion(bookDto.getVersion());
+        }
+        if (bookDto.getAuthors() != null) {
+            book.setAuthors(authorMapper.toEntityList(bookDto.getAuthors()));
+        }
+        if (bookDto.getGenres() != null) {
+            book.setGenres(genreMapper.toEntityList(bookDto.getGenres()));
+        }
+        return book;
     }
 
     @Override
     public BookDto toDto(Book book) {
-        return modelMapper.map(book, BookDto.class);
+        if (book == null) {
+            return null;
+        }
+        BookDto bookDto = new BookDto(authorMapper.toDtoList(book.getAuthors()), genreMapper.toDtoList(book.getGenres()));
+        bookDto.setId(book.getId());
+        bookDto.setName(book.getName());
+        bookDto.setPrice(book.getPrice());
+        bookDto.setQuantity(book.getQuantity());
+        bookDto.setVersion(book.getVersion());
+        return bookDto;
     }
 
     @Override
     public List<BookDto> toDtoList(List<Book> books) {
-        return books.stream().map(this::toDto).toList();
+        List<BookDto> dtos = new ArrayList<>(books.size());
+        for (Book book : books) {
+            dtos.add(toDto(book));
+        }
+        return dtos;
     }
 
     @Override
     public List<Book> toEntityList(List<BookDto> bookDtos) {
-        return bookDtos.stream().map(this::toEntity).toList();
+        List<Book> books = new ArrayList<>(bookDtos.size());
+        for (BookDto bookDto : bookDtos) {
+            books.add(toEntity(bookDto));
+        }
+        return books;
     }
 }
-
@@ -2,37 +2,48 @@ package dev.tuvumba.azul_test_task.domain.mappers;
 
 import dev.tuvumba.azul_test_task.domain.Genre;
 import dev.tuvumba.azul_test_task.domain.dto.GenreDto;
-import org.modelmapper.ModelMapper;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
 public class GenreMapper implements Mapper<Genre, GenreDto> {
-    private final ModelMapper modelMapper;
-
-    public GenreMapper(ModelMapper modelMapper) {
-        this.modelMapper = modelMapper;
-    }
 
     @Override
     public Genre toEntity(GenreDto genreDto) {
-        return  modelMapper.map(genreDto, Genre.class);
+        if (genreDto == null) {
+            return null;
+        }
+        Genre genre = new Genre();
+        genre.setName(genreDto.getName());
+        return genre;
     }
 
     @Override
     public GenreDto toDto(Genre genre) {
-        return  modelMapper.map(genre, GenreDto.class);
+        if (genre == null) {
+            return null;
+        }
+        return new GenreDto(genre.getName());
     }
 
     @Override
     public List<GenreDto> toDtoList(List<Genre> genres) {
-        return genres.stream().map(this::toDto).toList();
+        List<GenreDto> dtos = new ArrayList<>(genres.size());
+        for (Genre genre : genres) {
+            dtos.add(toDto(genre));
+        }
+        return dtos;
     }
 
     @Override
     public List<Genre> toEntityList(List<GenreDto> genreDtos) {
-        return genreDtos.stream().map(this::toEntity).toList();
+        List<Genre> genres = new ArrayList<>(genreDtos.size());
+        for (GenreDto genreDto : genreDtos) {
+            genres.add(toEntity(genreDto));
+        }
+        return genres;
     }
 
 }
@@ -4,26 +4,163 @@ import dev.tuvumba.azul_test_task.domain.Author;
 import dev.tuvumba.azul_test_task.domain.Book;
 import dev.tuvumba.azul_test_task.domain.Genre;
 import dev.tuvumba.azul_test_task.repository.base.ProductRepository;
+import dev.tuvumba.azul_test_task.repository.projections.BookAuthorId;
+import dev.tuvumba.azul_test_task.repository.projections.BookAuthorName;
+import dev.tuvumba.azul_test_task.repository.projections.BookGenreName;
+import dev.tuvumba.azul_test_task.repository.projections.BookSearchFields;
+import dev.tuvumba.azul_test_task.repository.projections.BookSnapshotFields;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 
+/**
+ *  Book queries. Searches combining several filters are built at runtime, see
+ *  {@link dev.tuvumba.azul_test_task.repository.specifications.BookSpecifications}.
+ */
 @Repository
-public interface BookRepository extends ProductRepository<Book> {
+public interface BookRepository extends ProductRepository<Book>, JpaSpecificationExecutor<Book> {
+
+    /*
+        Native search for books.search.mode=trigram. The lower(...) LIKE predicates match the expression
+        of the trigram indexes in db/trigram-search.sql, results are ranked by how closely a part of the text matches the query.
+     */
+    String TRIGRAM_TITLE_SEARCH = "SELECT b.* FROM book b WHERE lower(b.name) LIKE '%' || lower(:query) || '%' " +
+            "ORDER BY word_similarity(lower(:query), lower(b.name)) DESC, b.id";
+    String TRIGRAM_TITLE_COUNT = "SELECT count(*) FROM book b WHERE lower(b.name) LIKE '%' || lower(:query) || '%'";
+    String TRIGRAM_AUTHOR_MATCHES = "SELECT ba.book_id, max(word_similarity(lower(:query), lower(a.display_name))) AS rank " +
+            "FROM author a JOIN book_author ba ON ba.author_id = a.id " +
+            "WHERE lower(a.display_name) LIKE '%' || lower(:query) || '%' GROUP BY ba.book_id";
+    String TRIGRAM_AUTHOR_SEARCH = "SELECT b.* FROM book b JOIN (" + TRIGRAM_AUTHOR_MATCHES + ") m ON m.book_id = b.id " +
+            "ORDER BY m.rank DESC, b.id";
+    String TRIGRAM_AUTHOR_COUNT = "SELECT count(*) FROM (" + TRIGRAM_AUTHOR_MATCHES + ") m";
+
     List<Book> findBooksByName(String name);
     Page<Book> findBooksByAuthorsContainingIgnoreCase(Author author, Pageable pageable);
     Page<Book> findBooksByGenresContainingIgnoreCase(Genre genre,  Pageable pageable);
     Page<Book> findBooksByNameContainingIgnoreCase(String name, Pageable pageable);
 
+    Slice<Book> findBookSliceByAuthorsContainingIgnoreCase(Author author, Pageable pageable);
+    Slice<Book> findBookSliceByGenresContainingIgnoreCase(Genre genre, Pageable pageable);
+    Slice<Book> findBookSliceByNameContainingIgnoreCase(String name, Pageable pageable);
+
     /**
      *  Query for finding books where the author(at least one of them) contains a given name.
      * @param name String to search
      */
     @Query("SELECT DISTINCT b FROM Book b JOIN b.authors a WHERE LOWER(a.displayName) LIKE LOWER(CONCAT('%', :name, '%'))")
     Page<Book> findBooksByAuthorNameContaining(@Param("name") String name, Pageable pageable);
+
+    /**
+     *  Same as {@link #findBooksByAuthorNameContaining(String, Pageable)}, without the DISTINCT count over the join.
+     */
+    @Query("SELECT DISTINCT b FROM Book b JOIN b.authors a WHERE LOWER(a.displayName) LIKE LOWER(CONCAT('%', :name, '%'))")
+    Slice<Book> findBookSliceByAuthorNameContaining(@Param("name") String name, Pageable pageable);
+
+    /*
+        Associations of already loaded books, fetched in bulk after each chunk of the export.
+        Pages of books rely on the batch fetching and the second-level cache of the two lists instead, see Book.
+        Fetching them in the page query itself would break the count and make Hibernate paginate in memory,
+        and the two collections are fetched separately to avoid a cartesian product of authors and genres.
+     */
+    @Query("SELECT DISTINCT b FROM Book b LEFT JOIN FETCH b.authors WHERE b.id IN :ids")
+    List<Book> fetchAuthorsOf(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT b FROM Book b LEFT JOIN FETCH b.genres WHERE b.id IN :ids")
+    List<Book> fetchGenresOf(@Param("ids") Collection<Long> ids);
+
+    @Query(value = TRIGRAM_TITLE_SEARCH, countQuery = TRIGRAM_TITLE_COUNT, nativeQuery = true)
+    Page<Book> searchByTitleTrigram(@Param("query") String query, Pageable pageable);
+
+    @Query(value = TRIGRAM_TITLE_SEARCH, nativeQuery = true)
+    Slice<Book> searchSliceByTitleTrigram(@Param("query") String query, Pageable pageable);
+
+    @Query(value = TRIGRAM_AUTHOR_SEARCH, countQuery = TRIGRAM_AUTHOR_COUNT, nativeQuery = true)
+    Page<Book> searchByAuthorNameTrigram(@Param("query") String query, Pageable pageable);
+
+    @Query(value = TRIGRAM_AUTHOR_SEARCH, nativeQuery = true)
+    Slice<Book> searchSliceByAuthorNameTrigram(@Param("query") String query, Pageable pageable);
+
+    // flat rows for building in-memory search structures, see BookTrigramIndex
+    @Query("SELECT new dev.tuvumba.azul_test_task.repository.projections.BookSearchFields(b.id, b.name, b.price, b.quantity) FROM Book b")
+    List<BookSearchFields> findAllSearchFields();
+
+    @Query("SELECT new dev.tuvumba.azul_test_task.repository.projections.BookSearchFields(b.id, b.name, b.price, b.quantity) FROM Book b WHERE b.id IN :ids")
+    List<BookSearchFields> findSearchFields(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new dev.tuvumba.azul_test_task.repository.projections.BookAuthorName(b.id, a.displayName) FROM Book b JOIN b.authors a")
+    List<BookAuthorName> findAllAuthorNames();
+
+    @Query("SELECT new dev.tuvumba.azul_test_task.repository.projections.BookAuthorName(b.id, a.displayName) FROM Book b JOIN b.authors a WHERE b.id IN :ids")
+    List<BookAuthorName> findAuthorNames(@Param("ids") Collection<Long> ids);
+
+    // flat rows for building the in-memory catalog snapshot, see CatalogSnapshotHolder
+    @Query("SELECT new dev.tuvumba.azul_test_task.repository.projections.BookSnapshotFields(b.id, b.name, b.price, b.quantity, b.version) FROM Book b")
+    List<BookSnapshotFields> findAllSnapshotFields();
+
+    @Query("SELECT new dev.tuvumba.azul_test_task.repository.projections.BookSnapshotFields(b.id, b.name, b.price, b.quantity, b.version) FROM Book b WHERE b.id IN :ids")
+    List<BookSnapshotFields> findSnapshotFields(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new dev.tuvumba.azul_test_task.repository.projections.BookAuthorId(b.id, a.id) FROM Book b JOIN b.authors a")
+    List<BookAuthorId> findAllAuthorIds();
+
+    @Query("SELECT new dev.tuvumba.azul_test_task.repository.projections.BookAuthorId(b.id, a.id) FROM Book b JOIN b.authors a WHERE b.id IN :ids")
+    List<BookAuthorId> findAuthorIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new dev.tuvumba.azul_test_task.repository.projections.BookGenreName(b.id, g.name) FROM Book b JOIN b.genres g")
+    List<BookGenreName> findAllGenreNames();
+
+    @Query("SELECT new dev.tuvumba.azul_test_task.repository.projections.BookGenreName(b.id, g.name) FROM Book b JOIN b.genres g WHERE b.id IN :ids")
+    List<BookGenreName> findGenreNames(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT b.version FROM Book b WHERE b.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    @Query("SELECT b.quantity FROM Book b WHERE b.id = :id")
+    Optional<Integer> findQuantityById(@Param("id") Long id);
+
+    /*
+        Set-based deletion, the cost does not depend on how many books the authors of the deleted books have.
+        Hibernate deletes the join table rows of the books along with them, and invalidates the affected second-level cache regions.
+     */
+    @Query("SELECT b.id FROM Book b WHERE b.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT DISTINCT a.id FROM Book b JOIN b.authors a WHERE b.id IN :ids")
+    List<Long> findAuthorIdsOf(@Param("ids") Collection<Long> ids);
+
+    // managed copies of the deleted books would be stale, so the persistence context is flushed before and cleared after
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM Book b WHERE b.id IN :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
+
+    /*
+        Atomic stock changes. A single conditional UPDATE ... RETURNING, so the row is locked only for that statement
+        and concurrent changes of the same book queue on the row instead of overwriting each other.
+        The version is bumped as well, so an edit based on the stock before the change fails instead of undoing it.
+     */
+
+    /**
+     * @return the new quantity, empty if the book does not exist or has less than the amount in stock.
+     */
+    @Transactional
+    @Query(value = "UPDATE book SET quantity = quantity - :amount, version = version + 1 WHERE id = :id AND quantity >= :amount RETURNING quantity", nativeQuery = true)
+    Optional<Integer> reserveStock(@Param("id") Long id, @Param("amount") int amount);
+
+    /**
+     * @return the new quantity, empty if the book does not exist.
+     */
+    @Transactional
+    @Query(value = "UPDATE book SET quantity = quantity + :amount, version = version + 1 WHERE id = :id RETURNING quantity", nativeQuery = true)
+    Optional<Integer> releaseStock(@Param("id") Long id, @Param("amount") int amount);
 }
@@ -1,12 +1,44 @@
 package dev.tuvumba.azul_test_task.repository;
 
 import dev.tuvumba.azul_test_task.domain.Genre;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
+/**
+ *  Genre queries. The list of genres and name searches are kept in the second-level query cache,
+ *  a write to the genre table through Hibernate invalidates them.
+ */
 @Repository
 public interface GenreRepository extends JpaRepository<Genre, String> {
+
+    @Override
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Genre> findAll();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Genre> findByNameIsContaining(String name);
+
+    @Query("SELECT g.name FROM Genre g")
+    List<String> findAllNames();
+
+    /**
+     *  Creates those of the genres that do not exist yet, in a single statement. <br>
+     *  Concurrent writers creating the same genre do not fail on the primary key.
+     *  Declares the genre table as the only one written, otherwise Hibernate drops every second-level cache region after a native write.
+     * @return number of created genres.
+     */
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "genre"))
+    @Query(value = "INSERT INTO genre (name) SELECT unnest(:names) ON CONFLICT (name) DO NOTHING", nativeQuery = true)
+    int insertAllIfAbsent(@Param("names") String[] names);
 }
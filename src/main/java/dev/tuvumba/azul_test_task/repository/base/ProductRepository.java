@@ -1,8 +1,13 @@
 package dev.tuvumba.azul_test_task.repository.base;
 
 import dev.tuvumba.azul_test_task.domain.base.Product;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.repository.NoRepositoryBean;
 
@@ -17,5 +22,15 @@ import java.math.BigDecimal;
 public interface ProductRepository<T extends Product> extends JpaRepository<T, Long> {
     Page<T> findByPriceBetween(BigDecimal from, BigDecimal to, Pageable pageable);
     Page<T> findByQuantityBetween(int from, int to, Pageable pageable);
+
+    // slices fetch one extra row to know if there is a next page, no COUNT query is issued
+    Slice<T> findSliceBy(Pageable pageable);
+    Slice<T> findSliceByPriceBetween(BigDecimal from, BigDecimal to, Pageable pageable);
+    Slice<T> findSliceByQuantityBetween(int from, int to, Pageable pageable);
+
+    // keyset scrolling, the ID is appended to the sort so the position is always unique
+    Window<T> findAllBy(ScrollPosition position, Sort sort, Limit limit);
+    Window<T> findByPriceBetween(BigDecimal from, BigDecimal to, ScrollPosition position, Sort sort, Limit limit);
+    Window<T> findByQuantityBetween(int from, int to, ScrollPosition position, Sort sort, Limit limit);
 }
 
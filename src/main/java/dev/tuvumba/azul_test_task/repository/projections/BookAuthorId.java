@@ -0,0 +1,7 @@
+package dev.tuvumba.azul_test_task.repository.projections;
+
+/**
+ *  One (book, author) pair of the book_author join.
+ */
+public record BookAuthorId(Long bookId, Long authorId) {
+}
@@ -0,0 +1,7 @@
+package dev.tuvumba.azul_test_task.repository.projections;
+
+/**
+ *  One (book, author name) pair of the book_author join.
+ */
+public record BookAuthorName(Long bookId, String displayName) {
+}
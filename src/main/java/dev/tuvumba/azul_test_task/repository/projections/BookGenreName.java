@@ -0,0 +1,7 @@
+package dev.tuvumba.azul_test_task.repository.projections;
+
+/**
+ *  One (book, genre) pair of the book_genre join.
+ */
+public record BookGenreName(Long bookId, String genreName) {
+}
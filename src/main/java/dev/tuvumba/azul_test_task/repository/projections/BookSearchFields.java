@@ -0,0 +1,9 @@
+package dev.tuvumba.azul_test_task.repository.projections;
+
+import java.math.BigDecimal;
+
+/**
+ *  Flat projection of the book columns that can be searched and sorted by, without loading the entity.
+ */
+public record BookSearchFields(Long id, String name, BigDecimal price, int quantity) {
+}
@@ -0,0 +1,9 @@
+package dev.tuvumba.azul_test_task.repository.projections;
+
+import java.math.BigDecimal;
+
+/**
+ *  Flat projection of the book columns held by the in-memory catalog snapshot, without loading the entity.
+ */
+public record BookSnapshotFields(Long id, String name, BigDecimal price, int quantity, long version) {
+}
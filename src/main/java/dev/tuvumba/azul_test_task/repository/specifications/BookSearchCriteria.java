@@ -0,0 +1,36 @@
+package dev.tuvumba.azul_test_task.repository.specifications;
+
+import java.math.BigDecimal;
+
+/**
+ *  Filters of a composite book search, any of them may be null and only the given ones are applied.
+ *
+ * @param title Fragment of the title, case-insensitive.
+ * @param authorId ID of one of the authors.
+ * @param author Fragment of the name of one of the authors, case-insensitive.
+ * @param genre Name of one of the genres, case-insensitive.
+ * @param minPrice Lowest price, inclusive.
+ * @param maxPrice Highest price, inclusive.
+ * @param minQuantity Lowest quantity in stock, inclusive.
+ * @param maxQuantity Highest quantity in stock, inclusive.
+ */
+public record BookSearchCriteria(String title, Long authorId, String author, String genre,
+                                 BigDecimal minPrice, BigDecimal maxPrice,
+                                 Integer minQuantity, Integer maxQuantity) {
+
+    public BookSearchCriteria {
+        title = blankToNull(title);
+        author = blankToNull(author);
+        genre = blankToNull(genre);
+        if (minPrice != null && maxPrice != null && minPrice.compareTo(maxPrice) > 0) {
+            throw new IllegalArgumentException("minPrice cannot be greater than maxPrice.");
+        }
+        if (minQuantity != null && maxQuantity != null && minQuantity > maxQuantity) {
+            throw new IllegalArgumentException("minQuantity cannot be greater than maxQuantity.");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+}
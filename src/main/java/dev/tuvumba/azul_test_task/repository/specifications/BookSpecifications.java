@@ -0,0 +1,113 @@
+package dev.tuvumba.azul_test_task.repository.specifications;
+
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.BiFunction;
+
+/**
+ *  Compiles a {@link BookSearchCriteria} into one query, so every filter runs in the database. <br>
+ *  Authors and genres are matched with EXISTS subqueries instead of joins: a book matching several authors
+ *  is not returned twice, and neither the page nor the count needs a DISTINCT.
+ */
+public final class BookSpecifications {
+
+    private BookSpecifications() {
+    }
+
+    public static Specification<Book> matching(BookSearchCriteria criteria) {
+        List<Specification<Book>> filters = new ArrayList<>();
+        if (criteria.title() != null) {
+            filters.add(titleContains(criteria.title()));
+        }
+        if (criteria.authorId() != null) {
+            filters.add(hasAuthor(criteria.authorId()));
+        }
+        if (criteria.author() != null) {
+            filters.add(hasAuthorNameContaining(criteria.author()));
+        }
+        if (criteria.genre() != null) {
+            filters.add(hasGenre(criteria.genre()));
+        }
+        if (criteria.minPrice() != null || criteria.maxPrice() != null) {
+            filters.add(priceBetween(criteria.minPrice(), criteria.maxPrice()));
+        }
+        if (criteria.minQuantity() != null || criteria.maxQuantity() != null) {
+            filters.add(quantityBetween(criteria.minQuantity(), criteria.maxQuantity()));
+        }
+        return Specification.allOf(filters);
+    }
+
+    public static Specification<Book> titleContains(String title) {
+        return (root, query, cb) -> cb.like(cb.lower(root.get("name")), likePattern(title), '\\');
+    }
+
+    public static Specification<Book> hasAuthor(Long authorId) {
+        return hasAuthorMatching((author, cb) -> cb.equal(author.get("id"), authorId));
+    }
+
+    public static Specification<Book> hasAuthorNameContaining(String name) {
+        return hasAuthorMatching((author, cb) -> cb.like(cb.lower(author.get("displayName")), likePattern(name), '\\'));
+    }
+
+    public static Specification<Book> hasGenre(String genre) {
+        return (root, query, cb) -> {
+            Subquery<Long> books = query.subquery(Long.class);
+            Root<Book> book = books.correlate(root);
+            Join<Book, Genre> genres = book.join("genres");
+            books.select(cb.literal(1L)).where(cb.equal(cb.lower(genres.get("name")), genre.toLowerCase(Locale.ROOT)));
+            return cb.exists(books);
+        };
+    }
+
+    public static Specification<Book> priceBetween(BigDecimal from, BigDecimal to) {
+        return (root, query, cb) -> between(cb, root.get("price"), from, to);
+    }
+
+    public static Specification<Book> quantityBetween(Integer from, Integer to) {
+        return (root, query, cb) -> between(cb, root.get("quantity"), from, to);
+    }
+
+    private static Specification<Book> hasAuthorMatching(BiFunction<Join<Book, Author>, CriteriaBuilder, Predicate> condition) {
+        return (root, query, cb) -> {
+            Subquery<Long> books = query.subquery(Long.class);
+            Root<Book> book = books.correlate(root);
+            Join<Book, Author> authors = book.join("authors");
+            books.select(cb.literal(1L)).where(condition.apply(authors, cb));
+            return cb.exists(books);
+        };
+    }
+
+    private static <Y extends Comparable<? super Y>> Predicate between(CriteriaBuilder cb, Expression<Y> value, Y from, Y to) {
+        if (from == null) {
+            return cb.lessThanOrEqualTo(value, to);
+        }
+        if (to == null) {
+            return cb.greaterThanOrEqualTo(value, from);
+        }
+        return cb.between(value, from, to);
+    }
+
+    /**
+     * The fragment is matched literally, % and _ typed by the client are not wildcards.
+     */
+    private static String likePattern(String fragment) {
+        String escaped = fragment.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+}
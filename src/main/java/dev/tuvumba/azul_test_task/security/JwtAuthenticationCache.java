@@ -0,0 +1,129 @@
+package dev.tuvumba.azul_test_task.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ *  Bounded cache of verified tokens. <br>
+ *  A token is parsed and its signature checked once, later requests with it only cost a hash and a lookup.
+ *  Entries are keyed by the SHA-256 of the token (the token itself is never kept) and expire together with it.
+ *  A token without an expiration is still valid, it is verified again after a bounded time.
+ */
+@Component
+public class JwtAuthenticationCache implements MeterBinder {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(JwtAuthenticationCache.class);
+
+    private record VerifiedToken(UsernamePasswordAuthenticationToken authentication, Instant expiresAt) {
+    }
+
+    private final JwtUtils jwtUtils;
+    private final Duration nonExpiringTtl;
+    private final Cache<String, VerifiedToken> cache;
+
+    public JwtAuthenticationCache(JwtUtils jwtUtils, @Value("${jwt.cache.max-size:10000}") long maxSize,
+                                  @Value("${jwt.cache.non-expiring-ttl:5m}") Duration nonExpiringTtl) {
+        this.jwtUtils = jwtUtils;
+        this.nonExpiringTtl = nonExpiringTtl;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+                        return untilExpiration(token);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return untilExpiration(token);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    private static long untilExpiration(VerifiedToken token) {
+        return Math.max(0, Duration.between(Instant.now(), token.expiresAt()).toNanos());
+    }
+
+    /**
+     * @return authentication for a valid token, empty if the token is invalid or expired.
+     *         The returned instance is a fresh copy, so the caller can attach request details to it.
+     * @throws JwtException if the token is valid but its roles can not be read.
+     */
+    public Optional<UsernamePasswordAuthenticationToken> authenticate(String token) {
+        String key = digest(token);
+        VerifiedToken verified = cache.getIfPresent(key);
+        if (verified == null || !verified.expiresAt().isAfter(Instant.now())) {
+            Claims claims;
+            try {
+                claims = jwtUtils.parseClaims(token);
+            } catch (JwtException e) {
+                logger.warn("Invalid token: {}", e.getMessage());
+                return Optional.empty();
+            }
+            verified = new VerifiedToken(toAuthentication(claims), expiresAt(claims));
+            cache.put(key, verified);
+        }
+
+        UsernamePasswordAuthenticationToken cached = verified.authentication();
+        return Optional.of(new UsernamePasswordAuthenticationToken(cached.getPrincipal(), null, cached.getAuthorities()));
+    }
+
+    private Instant expiresAt(Claims claims) {
+        Date expiration = claims.getExpiration();
+        return expiration == null ? Instant.now().plus(nonExpiringTtl) : expiration.toInstant();
+    }
+
+    private UsernamePasswordAuthenticationToken toAuthentication(Claims claims) {
+        String username = jwtUtils.getUsername(claims);
+        List<String> roles = jwtUtils.extractRoles(claims);
+
+        // note to self: spring treats hasRole('ADMIN') as hasAuthority('ROLE_ADMIN')
+        List<GrantedAuthority> authorities = roles.stream()
+                .<GrantedAuthority>map(role -> new SimpleGrantedAuthority("ROLE_" + role))
+                .toList();
+        return new UsernamePasswordAuthenticationToken(username, null, authorities);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "jwt");
+    }
+}
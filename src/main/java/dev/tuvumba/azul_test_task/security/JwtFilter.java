@@ -1,29 +1,44 @@
 package dev.tuvumba.azul_test_task.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtFilter extends OncePerRequestFilter {
-    private final JwtUtils jwtUtils;
+    private final JwtAuthenticationCache authenticationCache;
+
+    // time spent authenticating the token, by outcome
+    private final Timer authenticated;
+    private final Timer rejected;
+    private final Timer failed;
 
     @Autowired
-    public JwtFilter(JwtUtils jwtUtils) {
-        this.jwtUtils = jwtUtils;
+    public JwtFilter(JwtAuthenticationCache authenticationCache, MeterRegistry meterRegistry) {
+        this.authenticationCache = authenticationCache;
+        this.authenticated = authenticationTimer(meterRegistry, "authenticated");
+        this.rejected = authenticationTimer(meterRegistry, "rejected");
+        this.failed = authenticationTimer(meterRegistry, "error");
+    }
+
+    private static Timer authenticationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("jwt.authentication")
+                .description("Authentication of the bearer token of a request")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
     @Override
@@ -34,8 +49,9 @@ public class JwtFilter extends OncePerRequestFilter {
         String requestUri = request.getRequestURI();
 
 
-        // allow requests for login and docs.
-        if (requestUri.startsWith("/auth/login") || requestUri.startsWith("/swagger-ui") || requestUri.startsWith("/v3")) {
+        // allow requests for login, docs and health checks.
+        if (requestUri.startsWith("/auth/login") || requestUri.startsWith("/swagger-ui") || requestUri.startsWith("/v3")
+                || requestUri.equals("/actuator/health") || requestUri.startsWith("/actuator/health/")) {
             filterChain.doFilter(request, response);
             return;
         }
@@ -51,28 +67,21 @@ public class JwtFilter extends OncePerRequestFilter {
         // get the token itself
         String token = extractToken(authHeader);
 
+        long start = System.nanoTime();
         try {
-            if (jwtUtils.validateToken(token)) {
-                String username = jwtUtils.getUsername(token);
-                List<String> roles = jwtUtils.extractRoles(token);
-                logger.debug("JWT valid. Username:" + username + ", Roles: " + roles);
-
-
-                // construct needed authorities from the roles we got from the token
-                // note to self: spring treats hasRole('ADMIN') as hasAuthority('ROLE_ADMIN')
-
-                List<GrantedAuthority> authorities = roles.stream()
-                        .map(role -> new SimpleGrantedAuthority("ROLE_" + role))
-                        .collect(Collectors.toList());
-
-                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(username, null, authorities);
+            Optional<UsernamePasswordAuthenticationToken> verified = authenticationCache.authenticate(token);
+            Timer outcome = verified.isPresent() ? authenticated : rejected;
+            outcome.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (verified.isPresent()) {
+                UsernamePasswordAuthenticationToken authentication = verified.get();
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authentication);
-                logger.debug("User " + username + " authenticated successfully");
+                logger.debug("User " + authentication.getName() + " authenticated successfully, roles: " + authentication.getAuthorities());
             } else {
                 logger.warn("JWT validation failed");
             }
         } catch (Exception e) {
+            failed.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
             logger.error("Authentication failed: " + e.getMessage());
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             response.getWriter().write("Unauthorized: Invalid or expired token");
@@ -2,6 +2,7 @@ package dev.tuvumba.azul_test_task.security;
 
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
 import lombok.Getter;
@@ -22,12 +23,15 @@ import java.util.List;
 @Getter
 public class JwtUtils {
     private final SecretKey secretKey;
+    // immutable and thread-safe, built once instead of per call
+    private final JwtParser parser;
 
     private static final org.slf4j.Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
     public JwtUtils(@Value("${jwt.secret}") String secret) {
         byte[] keyBytes = Base64.getDecoder().decode(secret);
         this.secretKey = Keys.hmacShaKeyFor(keyBytes);
+        this.parser = Jwts.parser().verifyWith(secretKey).build();
     }
 
     public String generateToken(String username, List<String> roles) {
@@ -41,10 +45,20 @@ public class JwtUtils {
                 .compact();
     }
 
+    /**
+     * Verifies the signature and expiration of the token and returns its claims. <br>
+     * This is the only place where a token is parsed, the rest of the claims accessors work on its result.
+     *
+     * @throws JwtException if the token is invalid or expired.
+     */
+    public Claims parseClaims(String token) {
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
     public boolean validateToken(String token) {
         try {
             logger.debug("Validating token: {}", token);
-            Jwts.parser().verifyWith(getSecretKey()).build().parseSignedClaims(token);
+            parseClaims(token);
             return true;
         } catch (JwtException e) {
             logger.error("Invalid token: {}", token);
@@ -53,21 +67,18 @@ public class JwtUtils {
     }
 
     public String getUsername(String token) {
-        return Jwts.parser()
-                .verifyWith(getSecretKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload()
-                .getSubject();
+        return getUsername(parseClaims(token));
+    }
+
+    public String getUsername(Claims claims) {
+        return claims.getSubject();
     }
 
     public List<String> extractRoles(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSecretKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return extractRoles(parseClaims(token));
+    }
 
+    public List<String> extractRoles(Claims claims) {
         try
         {
             return claims.get("roles", List.class);
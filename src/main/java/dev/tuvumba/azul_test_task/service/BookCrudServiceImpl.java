@@ -1,33 +1,57 @@
 package dev.tuvumba.azul_test_task.service;
 
+import dev.tuvumba.azul_test_task.config.exceptions.InsufficientStockException;
+import dev.tuvumba.azul_test_task.config.exceptions.PreconditionFailedException;
 import dev.tuvumba.azul_test_task.domain.Author;
 import dev.tuvumba.azul_test_task.domain.Book;
 import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.AuthorDto;
 import dev.tuvumba.azul_test_task.domain.dto.BookDto;
 import dev.tuvumba.azul_test_task.domain.dto.GenreDto;
 import dev.tuvumba.azul_test_task.domain.dto.PaginatedResponse;
+import dev.tuvumba.azul_test_task.domain.dto.StockLevelDto;
 import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
 import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
 import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
 import dev.tuvumba.azul_test_task.repository.AuthorRepository;
 import dev.tuvumba.azul_test_task.repository.BookRepository;
-import dev.tuvumba.azul_test_task.repository.GenreRepository;
+import dev.tuvumba.azul_test_task.repository.specifications.BookSearchCriteria;
+import dev.tuvumba.azul_test_task.repository.specifications.BookSpecifications;
 import dev.tuvumba.azul_test_task.service.base.BookCrudService;
+import dev.tuvumba.azul_test_task.service.base.BookSearch;
+import dev.tuvumba.azul_test_task.service.base.StockLedger;
+import dev.tuvumba.azul_test_task.service.cache.BookCache;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.cache.GenreRegistry;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import dev.tuvumba.azul_test_task.service.paging.ScrollCursor;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
-import jakarta.persistence.OptimisticLockException;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 
@@ -37,31 +61,94 @@ public class BookCrudServiceImpl implements BookCrudService {
     // logging
     private static final org.slf4j.Logger logger = LoggerFactory.getLogger(BookCrudServiceImpl.class);
 
+    private static final String AUTHORS_NOT_FOUND = "Author(s) of the book has not been found. Add them before adding a book.";
+
+    // IDs go into IN lists, PostgreSQL takes at most 32767 parameters per statement and books usually have a few authors
+    private static final int MAX_DELETED_BOOKS = 5000;
+    // authors of the deleted books have no such bound, they are checked in slices of this many
+    static final int AUTHOR_IDS_PER_STATEMENT = 1000;
+
     // repositories
     private final BookRepository bookRepository;
     private final AuthorRepository authorRepository;
-    private final GenreRepository genreRepository;
+    private final GenreRegistry genreRegistry;
+    private final BookSearch bookSearch;
 
     // mappers
     private final BookMapper bookMapper;
     private final GenreMapper genreMapper;
     private final AuthorMapper authorMapper;
 
+    // caching
+    private final BookCache bookCache;
+    private final CatalogVersion catalogVersion;
+    private final StockLedger stockLedger;
+    private final ApplicationEventPublisher eventPublisher;
+
     @Autowired
-    public BookCrudServiceImpl(BookRepository bookRepository, BookMapper bookMapper, AuthorRepository authorRepository, GenreRepository genreRepository, EntityManager entityManager, BookMapper bookMapper1, GenreMapper genreMapper, AuthorMapper authorMapper) {
+    public BookCrudServiceImpl(BookRepository bookRepository, BookMapper bookMapper, AuthorRepository authorRepository, GenreRegistry genreRegistry, EntityManager entityManager, BookMapper bookMapper1, GenreMapper genreMapper, AuthorMapper authorMapper,
+                               BookCache bookCache, CatalogVersion catalogVersion, ApplicationEventPublisher eventPublisher, BookSearch bookSearch, StockLedger stockLedger) {
         this.bookRepository = bookRepository;
         this.authorRepository = authorRepository;
-        this.genreRepository = genreRepository;
+        this.genreRegistry = genreRegistry;
+        this.bookSearch = bookSearch;
         this.bookMapper = bookMapper1;
         this.genreMapper = genreMapper;
         this.authorMapper = authorMapper;
+        this.bookCache = bookCache;
+        this.catalogVersion = catalogVersion;
+        this.eventPublisher = eventPublisher;
+        this.stockLedger = stockLedger;
+    }
+
+    /**
+     * Maps books to DTOs. Authors and genres of all of them are loaded with at most two queries instead of two per book:
+     * Hibernate fetches the lists of the whole page on first access, skipping the ones in the second-level cache (see {@link Book}). <br>
+     * Must be called inside the transaction that loaded the books.
+     */
+    private List<BookDto> toDtoListWithAssociations(List<Book> books) {
+        List<BookDto> dtos = bookMapper.toDtoList(books);
+        for (BookDto dto : dtos) {
+            dto.setQuantity(dto.getQuantity() + (int) stockLedger.pending(dto.getId()));
+        }
+        return dtos;
+    }
+
+    /**
+     * Adds stock changes not written yet to a book, copying it since cached books are shared.
+     */
+    private BookDto withPendingStock(BookDto book) {
+        long pending = stockLedger.pending(book.getId());
+        if (pending == 0) {
+            return book;
+        }
+        BookDto copy = new BookDto(book.getAuthors(), book.getGenres());
+        copy.setId(book.getId());
+        copy.setName(book.getName());
+        copy.setPrice(book.getPrice());
+        copy.setQuantity(book.getQuantity() + (int) pending);
+        copy.setVersion(book.getVersion());
+        return copy;
     }
 
     private PaginatedResponse<BookDto> bookPageToBookDtoPaginatedResponse(Page<Book> books) {
-        return new PaginatedResponse<>(bookMapper.toDtoList(books.getContent()),
+        return new PaginatedResponse<>(toDtoListWithAssociations(books.getContent()),
                 books.getTotalPages(), books.getTotalElements(), books.getNumber(), books.getSize());
     }
 
+    private PaginatedResponse<BookDto> bookSliceToBookDtoPaginatedResponse(Slice<Book> books) {
+        return PaginatedResponse.ofSlice(toDtoListWithAssociations(books.getContent()), books.getNumber(), books.getSize(), books.hasNext());
+    }
+
+    private PaginatedResponse<BookDto> bookSearchToBookDtoPaginatedResponse(Slice<Book> books) {
+        return books instanceof Page<Book> page ? bookPageToBookDtoPaginatedResponse(page) : bookSliceToBookDtoPaginatedResponse(books);
+    }
+
+    private PaginatedResponse<BookDto> bookWindowToBookDtoPaginatedResponse(Window<Book> books, int size) {
+        String next = books.hasNext() && !books.isEmpty() ? ScrollCursor.encode(books.positionAt(books.size() - 1)) : null;
+        return PaginatedResponse.ofCursor(toDtoListWithAssociations(books.getContent()), size, next);
+    }
+
     /*
      Implementation note:
      My first idea was to create authors 'on the go', when the user tries to save the book.
@@ -110,19 +197,26 @@ public class BookCrudServiceImpl implements BookCrudService {
     }
     */
 
-    private Genre findOrCreateGenre(String genreName) {
-        Optional<Genre> existingGenre = genreRepository.findById(genreName);
-        if (existingGenre.isEmpty()) {
-            logger.debug("Creating genre with name {}", genreName);
-            Genre newGenre = new Genre();
-            newGenre.setName(genreName);
-            genreRepository.save(newGenre);
-            logger.debug("Created new genre: \"{}\"", newGenre.getName());
-            return newGenre;
-        } else {
-            logger.debug("Found existing genre: \"{}\"", existingGenre.get().getName());
-            return existingGenre.get();
+    /**
+     * Loads authors with a single query, no matter how many there are. <br>
+     * Input order is kept, duplicates are dropped.
+     *
+     * @throws EntityNotFoundException listing all the IDs that were not found.
+     */
+    private List<Author> resolveAuthors(Collection<Long> authorIds) {
+        Set<Long> wanted = new LinkedHashSet<>(authorIds);
+        if (wanted.contains(null)) {
+            throw new IllegalArgumentException("Author's ID cannot be empty.");
         }
+
+        Map<Long, Author> found = new HashMap<>();
+        authorRepository.findAllById(wanted).forEach(author -> found.put(author.getId(), author));
+
+        List<Long> missing = wanted.stream().filter(id -> !found.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            throw new EntityNotFoundException(AUTHORS_NOT_FOUND + " Missing IDs: " + missing);
+        }
+        return wanted.stream().map(found::get).collect(Collectors.toList());
     }
 
     @Override
@@ -130,25 +224,31 @@ public class BookCrudServiceImpl implements BookCrudService {
     public Optional<BookDto> save(BookDto book) {
         try {
             // handle authors
-            List<Author> updatedAuthors = book.getAuthors().stream()
-                    .map(author -> authorRepository.findById(author.getId()).orElseThrow(() -> new EntityNotFoundException("Author(s) of the book has not been found. Add them before adding a book.")))
-                    .distinct()
-                    .collect(Collectors.toList());
+            List<Author> updatedAuthors = resolveAuthors(book.getAuthors().stream().map(AuthorDto::getId).toList());
 
             // handle genres
-            List<Genre> updatedGenres = book.getGenres().stream().map(genre -> findOrCreateGenre(genre.getName())).collect(Collectors.toList());
+            List<Genre> updatedGenres = genreRegistry.resolve(book.getGenres().stream().map(GenreDto::getName).toList());
 
-            book.setAuthors(authorMapper.toDtoList(updatedAuthors));
-            book.setGenres(genreMapper.toDtoList(updatedGenres));
+            // the caller's DTO is left as sent, so a retried save starts over from it and not from the version read here
+            Book toSave = bookMapper.toEntity(book);
+            toSave.setAuthors(updatedAuthors);
+            toSave.setGenres(updatedGenres);
 
             Optional<Book> repositoryBook = bookRepository.findById(book.getId());
             if (repositoryBook.isPresent()) {
                 logger.debug("Book \"{}\" with ISBN \"{}\" exists", book.getName(), book.getId());
+                if (book.getVersion() == null) {
+                    // no version given: overwrite whatever is stored
+                    toSave.setVersion(repositoryBook.get().getVersion());
+                }
             }
 
-            Book savedBook = bookRepository.save(bookMapper.toEntity(book));
+            Book savedBook = bookRepository.save(toSave);
+            bookRepository.flush();
+            eventPublisher.publishEvent(BookChangedEvent.changed(savedBook.getId()));
             return Optional.of(bookMapper.toDto(savedBook));
-        } catch (OptimisticLockException | IllegalArgumentException e) {
+        } catch (IllegalArgumentException e) {
+            // optimistic lock failures are not caught, the transaction is rolled back and the caller can retry
             logger.error("Saving a book failed: \"{}\"", e.getMessage());
             return Optional.empty();
         }
@@ -160,13 +260,20 @@ public class BookCrudServiceImpl implements BookCrudService {
      *
      * @param id A book with this Id will be updated.
      * @param updates Map 'field' -> 'new value' of changes that will be applied
+     * @param expectedVersion If set, the update is applied only to this version of the book.
      * @return An updated BookDto instance.
      *
      * @throws  RuntimeException if the update failed.
+     * @throws  PreconditionFailedException if the book is not at the expected version, including a concurrent write.
      */
-    public BookDto updateBook(Long id, Map<String, Object> updates) throws EntityNotFoundException {
+    @Override
+    @Transactional
+    public BookDto updateBook(Long id, Map<String, Object> updates, Long expectedVersion) throws EntityNotFoundException {
         Book book = bookRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Book not found"));
+        if (expectedVersion != null && expectedVersion != book.getVersion()) {
+            throw new PreconditionFailedException("Book " + id + " is at version " + book.getVersion() + ", not " + expectedVersion + ".");
+        }
 
         updates.forEach((key, value) -> {
             try {
@@ -201,19 +308,18 @@ public class BookCrudServiceImpl implements BookCrudService {
                     }
                     case "authors" -> {
                         if (value instanceof List<?> authorDtos) {
-                            List<Author> updatedAuthors = new ArrayList<>();
+                            List<Long> authorIds = new ArrayList<>();
 
                             for (Object obj : authorDtos) {
                                 if (!(obj instanceof Map<?, ?> authorData)) {
                                     throw new IllegalArgumentException("Invalid author format. Expected an object with 'username' and 'displayName'.");
                                 }
 
-                                Long authorId = ((Number) authorData.get("id")).longValue();
-                                updatedAuthors.add(authorRepository.findById(authorId).orElseThrow(() -> new EntityNotFoundException("Author(s) of the book has not been found. Add them before adding a book.")));
+                                authorIds.add(((Number) authorData.get("id")).longValue());
                             }
 
-                            // remove duplicates and set updated authors
-                            book.setAuthors(updatedAuthors.stream().distinct().collect(Collectors.toList()));
+                            // duplicates are removed while resolving
+                            book.setAuthors(resolveAuthors(authorIds));
                             logger.debug("Updated authors for book: \"{}\", new authors are \"{}\"", book.getName(), book.getAuthors());
                         } else {
                             throw new IllegalArgumentException("Invalid type for 'authors'. Expected a list of author objects.");
@@ -227,8 +333,7 @@ public class BookCrudServiceImpl implements BookCrudService {
                                     .map(Object::toString)
                                     .toList();
 
-                            List<Genre> updatedGenres = names.stream().map(this::findOrCreateGenre).toList();
-                            book.setGenres(updatedGenres);
+                            book.setGenres(genreRegistry.resolve(names));
                         } else {
                             throw new IllegalArgumentException("Invalid type for 'genres'. Expected a list of genre names.");
                         }
@@ -241,96 +346,241 @@ public class BookCrudServiceImpl implements BookCrudService {
             }
         });
 
-        return bookMapper.toDto(bookRepository.save(book));
+        Book savedBook = bookRepository.save(book);
+        try {
+            // surfaces a concurrent write here, and the returned version is the one just written
+            bookRepository.flush();
+        } catch (OptimisticLockingFailureException e) {
+            if (expectedVersion != null) {
+                throw new PreconditionFailedException("Book " + id + " has been changed concurrently.");
+            }
+            throw e;
+        }
+        eventPublisher.publishEvent(BookChangedEvent.changed(id));
+        // the same state GET answers with, buffered stock changes included
+        return withPendingStock(bookMapper.toDto(savedBook));
     }
 
     @Override
-    public PaginatedResponse<BookDto> findByGenre(Genre genre, Pageable pageable) {
+    @Transactional(readOnly = true)
+    public PaginatedResponse<BookDto> findByGenre(Genre genre, Pageable pageable, boolean withCount) {
+        if (!withCount) {
+            return bookSliceToBookDtoPaginatedResponse(bookRepository.findBookSliceByGenresContainingIgnoreCase(genre, pageable));
+        }
         Page<Book> books = bookRepository.findBooksByGenresContainingIgnoreCase(genre, pageable);
         return bookPageToBookDtoPaginatedResponse(books);
     }
 
     @Override
-    public PaginatedResponse<BookDto> findByAuthor(Author author, Pageable pageable) {
+    @Transactional(readOnly = true)
+    public PaginatedResponse<BookDto> findByAuthor(Author author, Pageable pageable, boolean withCount) {
+        if (!withCount) {
+            return bookSliceToBookDtoPaginatedResponse(bookRepository.findBookSliceByAuthorsContainingIgnoreCase(author, pageable));
+        }
         Page<Book> books = bookRepository.findBooksByAuthorsContainingIgnoreCase(author, pageable);
         return bookPageToBookDtoPaginatedResponse(books);
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<BookDto> findByTitle(String title) {
-        return bookMapper.toDtoList(bookRepository.findBooksByName(title));
+        return toDtoListWithAssociations(bookRepository.findBooksByName(title));
     }
 
     @Override
-    public PaginatedResponse<BookDto> findByTitleContaining(String title, Pageable pageable) {
-        Page<Book> books = bookRepository.findBooksByNameContainingIgnoreCase(title, pageable);
-        return bookPageToBookDtoPaginatedResponse(books);
+    @Transactional(readOnly = true)
+    public PaginatedResponse<BookDto> findByTitleContaining(String title, Pageable pageable, boolean withCount) {
+        return bookSearchToBookDtoPaginatedResponse(bookSearch.findByTitleContaining(title, pageable, withCount));
     }
 
     @Override
-    public PaginatedResponse<BookDto> findByAuthorNameContaining(String authorName, Pageable pageable) {
-        Page<Book> books = bookRepository.findBooksByAuthorNameContaining(authorName, pageable);
-        return bookPageToBookDtoPaginatedResponse(books);
+    @Transactional(readOnly = true)
+    public PaginatedResponse<BookDto> findByAuthorNameContaining(String authorName, Pageable pageable, boolean withCount) {
+        return bookSearchToBookDtoPaginatedResponse(bookSearch.findByAuthorNameContaining(authorName, pageable, withCount));
     }
 
 
     @Override
+    @Transactional(readOnly = true)
     public List<BookDto> findAll() {
-        return bookRepository.findAll().stream().map(bookMapper::toDto).collect(Collectors.toList());
+        return toDtoListWithAssociations(bookRepository.findAll());
     }
 
     @Override
-    public PaginatedResponse<BookDto> findAll(Pageable pageable) {
+    @Transactional(readOnly = true)
+    public PaginatedResponse<BookDto> findAll(Pageable pageable, boolean withCount) {
+        if (!withCount) {
+            return bookSliceToBookDtoPaginatedResponse(bookRepository.findSliceBy(pageable));
+        }
         Page<Book> books = bookRepository.findAll(pageable);
         return bookPageToBookDtoPaginatedResponse(books);
     }
 
 
     @Override
-    public PaginatedResponse<BookDto> findByPriceBetween(BigDecimal from, BigDecimal to, Pageable pageable) {
+    @Transactional(readOnly = true)
+    public PaginatedResponse<BookDto> findAll(String cursor, int size, Sort sort) {
+        ScrollPosition position = ScrollCursor.decode(cursor, Book.class, sort);
+        Window<Book> books = bookRepository.findAllBy(position, sort, Limit.of(size));
+        return bookWindowToBookDtoPaginatedResponse(books, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginatedResponse<BookDto> findByPriceBetween(BigDecimal from, BigDecimal to, Pageable pageable, boolean withCount) {
+        if (!withCount) {
+            return bookSliceToBookDtoPaginatedResponse(bookRepository.findSliceByPriceBetween(from, to, pageable));
+        }
         Page<Book> books = bookRepository.findByPriceBetween(from, to, pageable);
         return bookPageToBookDtoPaginatedResponse(books);
     }
 
     @Override
-    public PaginatedResponse<BookDto> findByQuantityBetween(int from, int to, Pageable pageable) {
+    @Transactional(readOnly = true)
+    public PaginatedResponse<BookDto> findByQuantityBetween(int from, int to, Pageable pageable, boolean withCount) {
+        if (!withCount) {
+            return bookSliceToBookDtoPaginatedResponse(bookRepository.findSliceByQuantityBetween(from, to, pageable));
+        }
         Page<Book> books = bookRepository.findByQuantityBetween(from, to, pageable);
         return bookPageToBookDtoPaginatedResponse(books);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public PaginatedResponse<BookDto> findByPriceBetween(BigDecimal from, BigDecimal to, String cursor, int size, Sort sort) {
+        ScrollPosition position = ScrollCursor.decode(cursor, Book.class, sort);
+        Window<Book> books = bookRepository.findByPriceBetween(from, to, position, sort, Limit.of(size));
+        return bookWindowToBookDtoPaginatedResponse(books, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginatedResponse<BookDto> findByQuantityBetween(int from, int to, String cursor, int size, Sort sort) {
+        ScrollPosition position = ScrollCursor.decode(cursor, Book.class, sort);
+        Window<Book> books = bookRepository.findByQuantityBetween(from, to, position, sort, Limit.of(size));
+        return bookWindowToBookDtoPaginatedResponse(books, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginatedResponse<BookDto> search(BookSearchCriteria criteria, Pageable pageable, boolean withCount) {
+        Specification<Book> filters = BookSpecifications.matching(criteria);
+        if (!withCount) {
+            // offset scrolling reads one row past the page to know if there is a next one, like the slice queries
+            ScrollPosition position = pageable.getOffset() == 0
+                    ? ScrollPosition.offset()
+                    : ScrollPosition.offset(pageable.getOffset() - 1);
+            Window<Book> books = bookRepository.findBy(filters, query -> query.sortBy(pageable.getSort())
+                    .limit(pageable.getPageSize()).scroll(position));
+            return PaginatedResponse.ofSlice(toDtoListWithAssociations(books.getContent()),
+                    pageable.getPageNumber(), pageable.getPageSize(), books.hasNext());
+        }
+        return bookPageToBookDtoPaginatedResponse(bookRepository.findAll(filters, pageable));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public PaginatedResponse<BookDto> search(BookSearchCriteria criteria, String cursor, int size, Sort sort) {
+        ScrollPosition position = ScrollCursor.decode(cursor, Book.class, sort);
+        Window<Book> books = bookRepository.findBy(BookSpecifications.matching(criteria),
+                query -> query.sortBy(sort).limit(size).scroll(position));
+        return bookWindowToBookDtoPaginatedResponse(books, size);
+    }
+
+    /**
+     * Takes the amount out of stock through the {@link StockLedger}, concurrent reservations never oversell.
+     *
+     * @throws InsufficientStockException if there is less than the amount in stock.
+     */
+    @Override
+    public StockLevelDto reserve(Long id, int amount) {
+        requirePositive(amount);
+        int quantity = stockLedger.reserve(id, amount);
+        logger.debug("Reserved {} of book {}, {} left", amount, id, quantity);
+        return new StockLevelDto(id, quantity);
+    }
+
+    /**
+     * Puts the amount back to stock, e.g. for a cancelled order.
+     */
+    @Override
+    public StockLevelDto release(Long id, int amount) {
+        requirePositive(amount);
+        int quantity = stockLedger.release(id, amount);
+        logger.debug("Released {} of book {}, {} in stock", amount, id, quantity);
+        return new StockLevelDto(id, quantity);
+    }
+
+    private static void requirePositive(int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive.");
+        }
+    }
+
+    /**
+     * The version of the book, taken from {@link BookCache} or else with a single-column query. <br>
+     * Buffered stock changes and catalog-wide changes are part of the state, so they are part of the tag as well, see {@link CatalogVersion#bookETag}.
+     */
+    @Override
+    public Optional<String> findETag(Long id) {
+        return bookCache.getIfPresent(id).map(BookDto::getVersion)
+                .or(() -> bookRepository.findVersionById(id))
+                .map(version -> catalogVersion.bookETag(version, stockLedger.pending(id)));
+    }
+
+    @Override
+    public String eTag(BookDto book) {
+        return catalogVersion.bookETag(book.getVersion(), stockLedger.pending(book.getId()));
+    }
+
+    /**
+     * Served from {@link BookCache}, the repository is only hit on a miss. Buffered stock changes are added on top.
+     */
     @Override
     public Optional<BookDto> findById(Long id) {
-        return bookRepository.findById(id).map(bookMapper::toDto);
+        return bookCache.get(id, isbn -> bookRepository.findById(isbn).map(bookMapper::toDto).orElse(null))
+                .map(this::withPendingStock);
     }
 
 
     @Override
     @Transactional
     public void delete(Long bookId) {
-        Optional<Book> book = bookRepository.findById(bookId);
-        if (book.isPresent()) {
-            Book managedBook = book.get();
-            List<Author> authorsToCheck = new ArrayList<>(managedBook.getAuthors());
-            for (Author author : authorsToCheck) {
-                logger.debug("Processing author {} called {}", author.getId(), author.getDisplayName());
-
-                Author managedAuthor = authorRepository.findById(author.getId())
-                        .orElseThrow(() -> new EntityNotFoundException("Author not found"));
-
-                managedAuthor.getBooks().remove(managedBook);
-
-                // delete an author if he doesn't have any books. (not by quantity, but by book_author table.)
-                if (managedAuthor.getBooks().isEmpty()) {
-                    authorRepository.deleteById(managedAuthor.getId());
-                    logger.debug("Removed author {}", managedAuthor.getDisplayName());
-                } else {
-                    logger.debug("Did not remove author {}(id{}), their books are {}", managedAuthor.getDisplayName(), managedAuthor.getId(), managedAuthor.getBooks());
-                }
-            }
-            logger.debug("Deleted book '{}'", bookId);
-            bookRepository.deleteById(bookId);
-        }
+        deleteAll(List.of(bookId));
     }
 
+    /**
+     * A fixed number of statements for any number of books: the authors of the books are read as IDs,
+     * the books are deleted with their join rows, and the authors that have no book left are deleted
+     * in one statement per {@link #AUTHOR_IDS_PER_STATEMENT} authors.
+     */
+    @Override
+    @Transactional
+    public List<Long> deleteAll(Collection<Long> ids) {
+        if (ids.size() > MAX_DELETED_BOOKS) {
+            throw new IllegalArgumentException("Cannot delete more than " + MAX_DELETED_BOOKS + " books at once.");
+        }
+        if (ids.stream().anyMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Book ID cannot be null.");
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
 
+        List<Long> existing = bookRepository.findExistingIds(ids);
+        if (existing.isEmpty()) {
+            return List.of();
+        }
+        List<Long> authorIds = bookRepository.findAuthorIdsOf(existing);
+        bookRepository.deleteByIds(existing);
+        int deletedAuthors = 0;
+        for (int from = 0; from < authorIds.size(); from += AUTHOR_IDS_PER_STATEMENT) {
+            deletedAuthors += authorRepository.deleteWithoutBooks(
+                    authorIds.subList(from, Math.min(from + AUTHOR_IDS_PER_STATEMENT, authorIds.size())));
+        }
+
+        logger.debug("Deleted {} books and {} authors left without books", existing.size(), deletedAuthors);
+        eventPublisher.publishEvent(BookChangedEvent.deleted(existing));
+        return existing;
+    }
 }
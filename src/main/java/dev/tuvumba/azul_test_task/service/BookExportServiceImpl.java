@@ -0,0 +1,98 @@
+package dev.tuvumba.azul_test_task.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.service.base.BookExportService;
+import dev.tuvumba.azul_test_task.service.base.StockLedger;
+import dev.tuvumba.azul_test_task.service.imports.BookImportFormat;
+import dev.tuvumba.azul_test_task.service.imports.BookRowWriter;
+import jakarta.persistence.EntityManager;
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ *  Streams the catalog from a database cursor instead of loading it as a list. <br>
+ *  Books are read in ID order, fetch-size rows at a time, their authors and genres are loaded once per chunk,
+ *  and every chunk is written out and detached before the next one is read,
+ *  so memory use depends on the fetch size and not on the size of the catalog. <br>
+ *  The whole export runs in one read-only transaction, which PostgreSQL needs to keep the cursor open,
+ *  so it sees the catalog as of its first chunk.
+ */
+@Service
+public class BookExportServiceImpl implements BookExportService {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(BookExportServiceImpl.class);
+
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final BookMapper bookMapper;
+    private final StockLedger stockLedger;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public BookExportServiceImpl(BookRepository bookRepository, EntityManager entityManager, BookMapper bookMapper,
+                                 StockLedger stockLedger, ObjectMapper objectMapper,
+                                 @Value("${books.export.fetch-size:500}") int fetchSize) {
+        if (fetchSize < 1) {
+            throw new IllegalArgumentException("books.export.fetch-size must be at least 1.");
+        }
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.bookMapper = bookMapper;
+        this.stockLedger = stockLedger;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long exportBooks(OutputStream output, BookImportFormat format) throws IOException {
+        long start = System.nanoTime();
+        long exported = 0;
+        try (Stream<Book> books = entityManager.createQuery("SELECT b FROM Book b ORDER BY b.id", Book.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+             BookRowWriter writer = format.openWriter(output, objectMapper)) {
+
+            Iterator<Book> cursor = books.iterator();
+            List<Book> chunk = new ArrayList<>(fetchSize);
+            while (cursor.hasNext()) {
+                chunk.add(cursor.next());
+                if (chunk.size() == fetchSize || !cursor.hasNext()) {
+                    exported += write(chunk, writer);
+                    chunk.clear();
+                }
+            }
+        }
+        logger.info("Exported {} books as {} in {} ms", exported, format, (System.nanoTime() - start) / 1_000_000);
+        return exported;
+    }
+
+    private int write(List<Book> chunk, BookRowWriter writer) throws IOException {
+        List<Long> ids = chunk.stream().map(Book::getId).toList();
+        bookRepository.fetchAuthorsOf(ids);
+        bookRepository.fetchGenresOf(ids);
+        for (Book book : chunk) {
+            BookDto dto = bookMapper.toDto(book);
+            dto.setQuantity(dto.getQuantity() + (int) stockLedger.pending(dto.getId()));
+            writer.write(dto);
+        }
+        // the chunk is written, nothing of it has to stay in the persistence context
+        entityManager.clear();
+        return chunk.size();
+    }
+}
@@ -0,0 +1,184 @@
+package dev.tuvumba.azul_test_task.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.BookFacetsDto;
+import dev.tuvumba.azul_test_task.domain.dto.FacetCountDto;
+import dev.tuvumba.azul_test_task.domain.dto.PriceBucketDto;
+import dev.tuvumba.azul_test_task.repository.specifications.BookSearchCriteria;
+import dev.tuvumba.azul_test_task.repository.specifications.BookSpecifications;
+import dev.tuvumba.azul_test_task.service.base.BookFacetService;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  Facet counts computed in the database, three aggregate queries per search: books per genre and per author
+ *  grouped over the join tables, and all price buckets with the total in a single pass over the matching books. <br>
+ *  Results are cached per search and catalog version, so an entry is never served after a write even if it was
+ *  being computed while the write committed. Entries of older versions are dropped after every write, see {@link BookChangedEvent}.
+ */
+@Service
+public class BookFacetServiceImpl implements BookFacetService, MeterBinder {
+
+    private record Key(String catalogVersion, BookSearchCriteria criteria) {
+    }
+
+    private final EntityManager entityManager;
+    private final CatalogVersion catalogVersion;
+    private final BigDecimal[] priceBounds;
+    private final int maxAuthors;
+    private final Cache<Key, BookFacetsDto> cache;
+
+    public BookFacetServiceImpl(EntityManager entityManager, CatalogVersion catalogVersion,
+                                @Value("${books.facets.price-buckets:10,20,50,100}") BigDecimal[] priceBounds,
+                                @Value("${books.facets.max-authors:20}") int maxAuthors,
+                                @Value("${books.facets.cache.max-size:1000}") long maxSize,
+                                @Value("${books.facets.cache.ttl:10m}") Duration ttl) {
+        for (int i = 1; i < priceBounds.length; i++) {
+            if (priceBounds[i - 1].compareTo(priceBounds[i]) >= 0) {
+                throw new IllegalArgumentException("books.facets.price-buckets must be in ascending order.");
+            }
+        }
+        this.entityManager = entityManager;
+        this.catalogVersion = catalogVersion;
+        this.priceBounds = priceBounds.clone();
+        this.maxAuthors = maxAuthors;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public BookFacetsDto facets(BookSearchCriteria criteria) {
+        return cache.get(new Key(catalogVersion.eTag(), criteria), key -> load(key.criteria()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        // any write can move books between facet values, and the catalog version of all entries is outdated anyway
+        cache.invalidateAll();
+    }
+
+    private BookFacetsDto load(BookSearchCriteria criteria) {
+        Specification<Book> filters = BookSpecifications.matching(criteria);
+        List<PriceBucketDto> prices = new ArrayList<>();
+        long total = countPrices(filters, prices);
+        return new BookFacetsDto(total, countGenres(filters), countAuthors(filters), prices);
+    }
+
+    private List<FacetCountDto> countGenres(Specification<Book> filters) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> book = query.from(Book.class);
+        Join<Book, Genre> genre = book.join("genres");
+        Expression<Long> count = cb.count(book);
+        query.multiselect(genre.get("name"), count)
+                .groupBy(genre.get("name"))
+                .orderBy(cb.desc(count), cb.asc(genre.get("name")));
+        where(query, filters, book, cb);
+
+        List<FacetCountDto> genres = new ArrayList<>();
+        for (Tuple row : entityManager.createQuery(query).getResultList()) {
+            genres.add(new FacetCountDto(row.get(0, String.class), null, row.get(1, Long.class)));
+        }
+        return genres;
+    }
+
+    private List<FacetCountDto> countAuthors(Specification<Book> filters) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> book = query.from(Book.class);
+        Join<Book, Author> author = book.join("authors");
+        Expression<Long> count = cb.count(book);
+        query.multiselect(author.get("id"), author.get("displayName"), count)
+                .groupBy(author.get("id"), author.get("displayName"))
+                .orderBy(cb.desc(count), cb.asc(author.get("id")));
+        where(query, filters, book, cb);
+
+        List<FacetCountDto> authors = new ArrayList<>();
+        for (Tuple row : entityManager.createQuery(query).setMaxResults(maxAuthors).getResultList()) {
+            authors.add(new FacetCountDto(String.valueOf(row.get(0, Long.class)), row.get(1, String.class), row.get(2, Long.class)));
+        }
+        return authors;
+    }
+
+    /**
+     * Counts every bucket with a conditional sum in one row, so the books are read once and no grouping by an expression is needed.
+     *
+     * @return number of matching books.
+     */
+    private long countPrices(Specification<Book> filters, List<PriceBucketDto> buckets) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Book> book = query.from(Book.class);
+        Expression<BigDecimal> price = book.get("price");
+
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(cb.count(book));
+        for (int i = 0; i <= priceBounds.length; i++) {
+            BigDecimal from = i == 0 ? null : priceBounds[i - 1];
+            BigDecimal to = i == priceBounds.length ? null : priceBounds[i];
+            List<Predicate> inBucket = new ArrayList<>();
+            if (from != null) {
+                inBucket.add(cb.greaterThanOrEqualTo(price, from));
+            }
+            if (to != null) {
+                inBucket.add(cb.lessThan(price, to));
+            }
+            selections.add(cb.sum(cb.<Long>selectCase()
+                    .when(cb.and(inBucket.toArray(Predicate[]::new)), cb.literal(1L))
+                    .otherwise(cb.literal(0L))));
+        }
+        query.multiselect(selections);
+        where(query, filters, book, cb);
+
+        Tuple row = entityManager.createQuery(query).getSingleResult();
+        for (int i = 0; i <= priceBounds.length; i++) {
+            Long count = row.get(i + 1, Long.class);
+            buckets.add(new PriceBucketDto(i == 0 ? BigDecimal.ZERO : priceBounds[i - 1],
+                    i == priceBounds.length ? null : priceBounds[i],
+                    count == null ? 0 : count));
+        }
+        return row.get(0, Long.class);
+    }
+
+    private static void where(CriteriaQuery<Tuple> query, Specification<Book> filters, Root<Book> book, CriteriaBuilder cb) {
+        Predicate predicate = filters.toPredicate(book, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "book-facets");
+    }
+}
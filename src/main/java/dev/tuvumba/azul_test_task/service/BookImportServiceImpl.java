@@ -0,0 +1,241 @@
+package dev.tuvumba.azul_test_task.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.AuthorDto;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.BulkImportResult;
+import dev.tuvumba.azul_test_task.domain.dto.GenreDto;
+import dev.tuvumba.azul_test_task.repository.AuthorRepository;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.service.base.BookImportService;
+import dev.tuvumba.azul_test_task.service.cache.GenreRegistry;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import dev.tuvumba.azul_test_task.service.imports.BookImportFormat;
+import dev.tuvumba.azul_test_task.service.imports.BookRow;
+import dev.tuvumba.azul_test_task.service.imports.BookRowReader;
+import jakarta.persistence.EntityManager;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ *  Imports books in chunks, each chunk in its own transaction. <br>
+ *  Authors, genres and already existing books are resolved once per chunk, new books are written
+ *  with JDBC batch inserts (see hibernate.jdbc.batch_size) and the persistence context is cleared
+ *  after every chunk, so memory use does not depend on the size of the file. <br>
+ *  If a chunk fails as a whole, it is retried row by row to find the rows that caused it.
+ */
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(BookImportServiceImpl.class);
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final GenreRegistry genreRegistry;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int chunkSize;
+    private final int maxReportedFailures;
+
+    public BookImportServiceImpl(BookRepository bookRepository, AuthorRepository authorRepository, GenreRegistry genreRegistry,
+                                 EntityManager entityManager, PlatformTransactionManager transactionManager,
+                                 ObjectMapper objectMapper, ApplicationEventPublisher eventPublisher,
+                                 @Value("${books.import.chunk-size:500}") int chunkSize,
+                                 @Value("${books.import.max-reported-failures:1000}") int maxReportedFailures) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.genreRegistry = genreRegistry;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.maxReportedFailures = maxReportedFailures;
+    }
+
+    @Override
+    public BulkImportResult importBooks(InputStream input, BookImportFormat format) throws IOException {
+        BulkImportResult result = new BulkImportResult();
+        List<BookRow> chunk = new ArrayList<>(chunkSize);
+
+        try (BookRowReader reader = format.openReader(input, objectMapper)) {
+            BookRow row;
+            while ((row = reader.next()) != null) {
+                result.setRowsRead(result.getRowsRead() + 1);
+
+                String error = row.isFailed() ? row.error() : validate(row.book());
+                if (error != null) {
+                    fail(result, row, error);
+                    continue;
+                }
+
+                chunk.add(row);
+                if (chunk.size() >= chunkSize) {
+                    importChunk(chunk, result);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, result);
+            }
+        }
+
+        logger.info("Bulk import finished: {} rows read, {} imported, {} failed",
+                result.getRowsRead(), result.getImported(), result.getFailed());
+        return result;
+    }
+
+    private void importChunk(List<BookRow> rows, BulkImportResult result) {
+        try {
+            List<BulkImportResult.RowFailure> rejected = transactionTemplate.execute(status -> writeChunk(rows));
+            record(result, rows.size(), rejected);
+        } catch (RuntimeException e) {
+            logger.warn("Import of {} rows starting at line {} failed, retrying row by row: {}",
+                    rows.size(), rows.get(0).line(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            for (BookRow row : rows) {
+                try {
+                    List<BulkImportResult.RowFailure> rejected = transactionTemplate.execute(status -> writeChunk(List.of(row)));
+                    record(result, 1, rejected);
+                } catch (RuntimeException rowException) {
+                    fail(result, row, NestedExceptionUtils.getMostSpecificCause(rowException).getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a chunk of valid rows in the current transaction.
+     * @return Rows that were rejected because their authors do not exist.
+     */
+    private List<BulkImportResult.RowFailure> writeChunk(List<BookRow> rows) {
+        Set<Long> bookIds = new HashSet<>();
+        Set<Long> authorIds = new HashSet<>();
+        Set<String> genreNames = new LinkedHashSet<>();
+        for (BookRow row : rows) {
+            bookIds.add(row.book().getId());
+            authorIds.addAll(authorIdsOf(row.book()));
+            genreNames.addAll(genreNamesOf(row.book()));
+        }
+
+        // one lookup per chunk for each of them
+        Map<Long, Author> authors = new HashMap<>();
+        authorRepository.findAllById(authorIds).forEach(author -> authors.put(author.getId(), author));
+        Map<String, Genre> genres = new HashMap<>();
+        genreRegistry.resolve(genreNames).forEach(genre -> genres.put(genre.getName(), genre));
+        Map<Long, Book> books = new HashMap<>();
+        bookRepository.findAllById(bookIds).forEach(book -> books.put(book.getId(), book));
+
+        List<BulkImportResult.RowFailure> rejected = new ArrayList<>();
+        Set<Long> written = new LinkedHashSet<>();
+        for (BookRow row : rows) {
+            BookDto dto = row.book();
+            List<Long> missingAuthors = authorIdsOf(dto).stream().filter(id -> !authors.containsKey(id)).toList();
+            if (!missingAuthors.isEmpty()) {
+                rejected.add(new BulkImportResult.RowFailure(row.line(), dto.getId(),
+                        "Author(s) of the book has not been found. Missing IDs: " + missingAuthors));
+                continue;
+            }
+
+            Book book = books.get(dto.getId());
+            boolean isNew = book == null;
+            if (isNew) {
+                book = new Book();
+                book.setId(dto.getId());
+            }
+            book.setName(dto.getName());
+            book.setPrice(dto.getPrice());
+            book.setQuantity(dto.getQuantity());
+            book.setAuthors(authorIdsOf(dto).stream().distinct().map(authors::get).collect(Collectors.toList()));
+            book.setGenres(genreNamesOf(dto).stream().distinct().map(genres::get).collect(Collectors.toList()));
+
+            if (isNew) {
+                entityManager.persist(book);
+                books.put(book.getId(), book);
+            }
+            written.add(book.getId());
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+        if (!written.isEmpty()) {
+            eventPublisher.publishEvent(BookChangedEvent.changed(written));
+        }
+        return rejected;
+    }
+
+    private String validate(BookDto book) {
+        if (book.getId() == null) {
+            return "ISBN (id) is missing.";
+        }
+        if (book.getName() == null || book.getName().isBlank()) {
+            return "Name cannot be empty.";
+        }
+        if (book.getPrice() == null) {
+            return "Price is missing.";
+        }
+        if (book.getPrice().signum() < 0) {
+            return "Price cannot be negative.";
+        }
+        if (book.getQuantity() < 0) {
+            return "Quantity cannot be negative.";
+        }
+        if (book.getAuthors() != null && book.getAuthors().stream().anyMatch(author -> author == null || author.getId() == null)) {
+            return "Author's ID cannot be empty.";
+        }
+        if (book.getGenres() != null && book.getGenres().stream().anyMatch(genre -> genre == null || genre.getName() == null || genre.getName().isBlank())) {
+            return "Genre name cannot be empty.";
+        }
+        return null;
+    }
+
+    private List<Long> authorIdsOf(BookDto book) {
+        return book.getAuthors() == null ? List.of() : book.getAuthors().stream().map(AuthorDto::getId).toList();
+    }
+
+    private List<String> genreNamesOf(BookDto book) {
+        return book.getGenres() == null ? List.of() : book.getGenres().stream().map(GenreDto::getName).toList();
+    }
+
+    private void record(BulkImportResult result, int rows, List<BulkImportResult.RowFailure> rejected) {
+        List<BulkImportResult.RowFailure> failures = Objects.requireNonNullElse(rejected, List.of());
+        result.setImported(result.getImported() + rows - failures.size());
+        failures.forEach(failure -> addFailure(result, failure));
+    }
+
+    private void fail(BulkImportResult result, BookRow row, String message) {
+        Long id = row.book() == null ? null : row.book().getId();
+        addFailure(result, new BulkImportResult.RowFailure(row.line(), id, message));
+    }
+
+    private void addFailure(BulkImportResult result, BulkImportResult.RowFailure failure) {
+        result.setFailed(result.getFailed() + 1);
+        if (result.getFailures().size() < maxReportedFailures) {
+            result.getFailures().add(failure);
+        } else {
+            result.setFailuresTruncated(true);
+        }
+    }
+}
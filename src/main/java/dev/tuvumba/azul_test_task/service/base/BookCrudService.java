@@ -4,19 +4,74 @@ import dev.tuvumba.azul_test_task.domain.Author;
 import dev.tuvumba.azul_test_task.domain.Genre;
 import dev.tuvumba.azul_test_task.domain.dto.BookDto;
 import dev.tuvumba.azul_test_task.domain.dto.PaginatedResponse;
+import dev.tuvumba.azul_test_task.repository.specifications.BookSearchCriteria;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 /**
  * A base interface for Book CRUD service. Extended with book-specific queries.
  */
 public interface BookCrudService extends ProductCrudService<BookDto> {
-    PaginatedResponse<BookDto> findByGenre(Genre genre, Pageable pageable);
-    PaginatedResponse<BookDto> findByAuthor(Author author, Pageable pageable);
+    PaginatedResponse<BookDto> findByGenre(Genre genre, Pageable pageable, boolean withCount);
+    PaginatedResponse<BookDto> findByAuthor(Author author, Pageable pageable, boolean withCount);
     List<BookDto> findByTitle(String title);
-    PaginatedResponse<BookDto> findByTitleContaining(String title, Pageable pageable);
-    PaginatedResponse<BookDto> findByAuthorNameContaining(String authorName, Pageable pageable);
-    BookDto updateBook(Long id, Map<String, Object> updates);
+    PaginatedResponse<BookDto> findByTitleContaining(String title, Pageable pageable, boolean withCount);
+    PaginatedResponse<BookDto> findByAuthorNameContaining(String authorName, Pageable pageable, boolean withCount);
+
+    /**
+     * Books matching every given filter of the criteria, in one query.
+     */
+    PaginatedResponse<BookDto> search(BookSearchCriteria criteria, Pageable pageable, boolean withCount);
+    PaginatedResponse<BookDto> search(BookSearchCriteria criteria, String cursor, int size, Sort sort);
+
+    /**
+     * @param expectedVersion version the updates are based on, null to apply them to whatever is stored.
+     * @throws dev.tuvumba.azul_test_task.config.exceptions.PreconditionFailedException if the book is not at the expected version.
+     */
+    BookDto updateBook(Long id, Map<String, Object> updates, Long expectedVersion);
+
+    /**
+     * Deletes many books in one transaction, authors left without books are deleted with them.
+     *
+     * @return IDs of the deleted books, IDs of books that do not exist are skipped.
+     * @throws IllegalArgumentException if there are too many IDs or one of them is null.
+     */
+    List<Long> deleteAll(Collection<Long> ids);
+
+    /**
+     * Strong entity tag of the current state of a book, without loading or mapping it.
+     *
+     * @return empty if the book does not exist.
+     */
+    Optional<String> findETag(Long id);
+
+    /**
+     * Strong entity tag of a book returned by this service, the same {@link #findETag(Long)} gives while the book is unchanged.
+     */
+    String eTag(BookDto book);
+
+    default BookDto updateBook(Long id, Map<String, Object> updates) {
+        return updateBook(id, updates, null);
+    }
+
+    default PaginatedResponse<BookDto> findByGenre(Genre genre, Pageable pageable) {
+        return findByGenre(genre, pageable, true);
+    }
+
+    default PaginatedResponse<BookDto> findByAuthor(Author author, Pageable pageable) {
+        return findByAuthor(author, pageable, true);
+    }
+
+    default PaginatedResponse<BookDto> findByTitleContaining(String title, Pageable pageable) {
+        return findByTitleContaining(title, pageable, true);
+    }
+
+    default PaginatedResponse<BookDto> findByAuthorNameContaining(String authorName, Pageable pageable) {
+        return findByAuthorNameContaining(authorName, pageable, true);
+    }
 }
@@ -0,0 +1,17 @@
+package dev.tuvumba.azul_test_task.service.base;
+
+import dev.tuvumba.azul_test_task.service.imports.BookImportFormat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Exports the whole catalog as a stream, in a format the import accepts.
+ */
+public interface BookExportService {
+
+    /**
+     * @return number of exported books.
+     */
+    long exportBooks(OutputStream output, BookImportFormat format) throws IOException;
+}
@@ -0,0 +1,11 @@
+package dev.tuvumba.azul_test_task.service.base;
+
+import dev.tuvumba.azul_test_task.domain.dto.BookFacetsDto;
+import dev.tuvumba.azul_test_task.repository.specifications.BookSearchCriteria;
+
+/**
+ * Counts books per facet value, for the filters panel next to search results.
+ */
+public interface BookFacetService {
+    BookFacetsDto facets(BookSearchCriteria criteria);
+}
@@ -0,0 +1,14 @@
+package dev.tuvumba.azul_test_task.service.base;
+
+import dev.tuvumba.azul_test_task.domain.dto.BulkImportResult;
+import dev.tuvumba.azul_test_task.service.imports.BookImportFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Imports books in bulk from a streamed file.
+ */
+public interface BookImportService {
+    BulkImportResult importBooks(InputStream input, BookImportFormat format) throws IOException;
+}
@@ -0,0 +1,15 @@
+package dev.tuvumba.azul_test_task.service.base;
+
+import dev.tuvumba.azul_test_task.domain.Book;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Substring search over book titles and author names. <br>
+ * The implementation is picked with the books.search.mode property.
+ * Returns a {@link org.springframework.data.domain.Page} when counted, a plain slice otherwise.
+ */
+public interface BookSearch {
+    Slice<Book> findByTitleContaining(String title, Pageable pageable, boolean withCount);
+    Slice<Book> findByAuthorNameContaining(String authorName, Pageable pageable, boolean withCount);
+}
@@ -2,16 +2,40 @@ package dev.tuvumba.azul_test_task.service.base;
 
 import dev.tuvumba.azul_test_task.domain.dto.PaginatedResponse;
 import dev.tuvumba.azul_test_task.domain.dto.ProductDto;
+import dev.tuvumba.azul_test_task.domain.dto.StockLevelDto;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 import java.math.BigDecimal;
 
 /**
- * Generic product service with CRUD and paging support.
+ * Generic product service with CRUD and paging support. <br>
+ * Paged queries can skip counting the totals (withCount = false), the response then only tells if there is a next page.
  * @param <T>
  */
 public interface ProductCrudService<T extends ProductDto> extends CrudService<T, Long> {
-    PaginatedResponse<T> findAll(Pageable pageable);
-    PaginatedResponse<T> findByPriceBetween(BigDecimal from, BigDecimal to, Pageable pageable);
-    PaginatedResponse<T> findByQuantityBetween(int from, int to, Pageable pageable);
+    PaginatedResponse<T> findAll(Pageable pageable, boolean withCount);
+    PaginatedResponse<T> findByPriceBetween(BigDecimal from, BigDecimal to, Pageable pageable, boolean withCount);
+    PaginatedResponse<T> findByQuantityBetween(int from, int to, Pageable pageable, boolean withCount);
+
+    default PaginatedResponse<T> findAll(Pageable pageable) {
+        return findAll(pageable, true);
+    }
+
+    default PaginatedResponse<T> findByPriceBetween(BigDecimal from, BigDecimal to, Pageable pageable) {
+        return findByPriceBetween(from, to, pageable, true);
+    }
+
+    default PaginatedResponse<T> findByQuantityBetween(int from, int to, Pageable pageable) {
+        return findByQuantityBetween(from, to, pageable, true);
+    }
+
+    // atomic stock changes by a delta, safe under concurrent clients
+    StockLevelDto reserve(Long id, int amount);
+    StockLevelDto release(Long id, int amount);
+
+    // cursor (keyset) paging, a blank cursor starts from the first page
+    PaginatedResponse<T> findAll(String cursor, int size, Sort sort);
+    PaginatedResponse<T> findByPriceBetween(BigDecimal from, BigDecimal to, String cursor, int size, Sort sort);
+    PaginatedResponse<T> findByQuantityBetween(int from, int to, String cursor, int size, Sort sort);
 }
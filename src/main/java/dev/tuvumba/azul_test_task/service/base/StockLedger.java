@@ -0,0 +1,28 @@
+package dev.tuvumba.azul_test_task.service.base;
+
+/**
+ * Relative changes of stock levels, safe under concurrent buyers of the same product. <br>
+ * The implementation is picked with the books.stock.mode property.
+ */
+public interface StockLedger {
+
+    /**
+     * @return the stock left.
+     * @throws dev.tuvumba.azul_test_task.config.exceptions.InsufficientStockException if there is less than the amount in stock.
+     * @throws jakarta.persistence.EntityNotFoundException if the product does not exist.
+     */
+    int reserve(Long id, int amount);
+
+    /**
+     * @return the stock after the release.
+     * @throws jakarta.persistence.EntityNotFoundException if the product does not exist.
+     */
+    int release(Long id, int amount);
+
+    /**
+     * @return the change of the stock that is not in the database yet, readers add it to the stored quantity.
+     */
+    default long pending(Long id) {
+        return 0;
+    }
+}
@@ -0,0 +1,83 @@
+package dev.tuvumba.azul_test_task.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.CacheStatsDto;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ *  Read-through cache of mapped books, keyed by ISBN. <br>
+ *  Bounded by size and by time since write, so a missed invalidation can not live forever.
+ *  Entries are invalidated after the commit of every write, see {@link BookChangedEvent}.
+ */
+@Component
+public class BookCache implements MeterBinder {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(BookCache.class);
+
+    private final Cache<Long, BookDto> cache;
+
+    public BookCache(@Value("${books.cache.max-size:10000}") long maxSize,
+                     @Value("${books.cache.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached book or loads it with the given loader. <br>
+     * Concurrent misses of the same ISBN wait for a single load. Absent books are not cached.
+     */
+    public Optional<BookDto> get(Long id, Function<Long, BookDto> loader) {
+        return Optional.ofNullable(cache.get(id, loader));
+    }
+
+    public Optional<BookDto> getIfPresent(Long id) {
+        return Optional.ofNullable(cache.getIfPresent(id));
+    }
+
+    public void invalidate(Long id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStatsDto stats() {
+        CacheStats stats = cache.stats();
+        return new CacheStatsDto(stats.hitCount(), stats.missCount(), stats.evictionCount(),
+                stats.hitRate(), cache.estimatedSize());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.catalogWide()) {
+            logger.debug("Catalog-wide change, dropping all cached books");
+            cache.invalidateAll();
+            return;
+        }
+        cache.invalidateAll(event.changed());
+        cache.invalidateAll(event.deleted());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "books");
+    }
+}
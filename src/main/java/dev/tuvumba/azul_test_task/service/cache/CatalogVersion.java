@@ -0,0 +1,68 @@
+package dev.tuvumba.azul_test_task.service.cache;
+
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  Version of the catalog as a whole, the entity tag of every list of books. <br>
+ *  Changes after the commit of every write, see {@link BookChangedEvent}, and with every buffered stock change.
+ *  Prefixed with the start time, so a tag of a previous run never matches. <br>
+ *  Also counts catalog-wide changes (authors and genres), which change what a book shows without changing its version,
+ *  so they are part of the entity tag of every single book as well. <br>
+ *  A read model that publishes committed writes later (see CatalogSnapshotHolder) counts them itself when it publishes,
+ *  so a tag never announces a change before the body shows it.
+ */
+@Component
+public class CatalogVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    // only ever incremented, so the sum changes with every change; striped as stock changes may bump it at a high rate
+    private final LongAdder changes = new LongAdder();
+    private final AtomicLong catalogWideChanges = new AtomicLong();
+    private volatile boolean countedOnPublish;
+
+    public String eTag() {
+        return epoch + "." + changes.sum();
+    }
+
+    /**
+     * Entity tag of a single book: its version, buffered stock changes after a dot if there are any,
+     * and the catalog-wide changes after an @.
+     */
+    public String bookETag(long version, long pendingStock) {
+        String state = pendingStock == 0 ? String.valueOf(version) : version + "." + pendingStock;
+        return state + "@" + epoch + "." + catalogWideChanges.get();
+    }
+
+    public void bump() {
+        changes.increment();
+    }
+
+    /**
+     * Committed writes are no longer counted as they commit, only as {@link #published(boolean)} reports them.
+     */
+    public void countOnPublish() {
+        countedOnPublish = true;
+    }
+
+    /**
+     * Counts writes that readers can see from now on.
+     */
+    public void published(boolean catalogWide) {
+        if (catalogWide) {
+            catalogWideChanges.incrementAndGet();
+        }
+        bump();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (!countedOnPublish) {
+            published(event.catalogWide());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package dev.tuvumba.azul_test_task.service.cache;
+
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.repository.GenreRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *  In-memory registry of existing genre names. <br>
+ *  Genres are a small, nearly static set, so they are preloaded once and resolved without the database afterwards.
+ *  Names the registry does not know are looked up in one batch and the missing ones created with one insert-if-absent statement.
+ *  Genres are handed out as references, so a book that gets them is flushed without loading a single genre.
+ */
+@Component
+public class GenreRegistry {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(GenreRegistry.class);
+
+    private final GenreRepository genreRepository;
+    private final EntityManager entityManager;
+    private final Set<String> knownNames = ConcurrentHashMap.newKeySet();
+
+    public GenreRegistry(GenreRepository genreRepository, EntityManager entityManager) {
+        this.genreRepository = genreRepository;
+        this.entityManager = entityManager;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        knownNames.addAll(genreRepository.findAllNames());
+        logger.debug("Preloaded {} genres", knownNames.size());
+    }
+
+    /**
+     * Resolves genre names to genres, creating the missing ones. <br>
+     * Input order is kept, duplicates are dropped.
+     *
+     * @param names Names of the genres.
+     * @return References to the genres, usable from a book of the current persistence context.
+     * @throws IllegalArgumentException if any of the names is blank.
+     */
+    public List<Genre> resolve(Collection<String> names) {
+        Set<String> wanted = new LinkedHashSet<>(names);
+        List<String> unknown = new ArrayList<>();
+        for (String name : wanted) {
+            if (name == null || name.isBlank()) {
+                throw new IllegalArgumentException("Genre name cannot be empty.");
+            }
+            if (!knownNames.contains(name)) {
+                unknown.add(name);
+            }
+        }
+
+        if (!unknown.isEmpty()) {
+            Set<String> missing = new LinkedHashSet<>(unknown);
+            genreRepository.findAllById(unknown).forEach(genre -> missing.remove(genre.getName()));
+            if (!missing.isEmpty()) {
+                int created = genreRepository.insertAllIfAbsent(missing.toArray(String[]::new));
+                logger.debug("Created {} new genres out of {}", created, missing);
+            }
+            rememberAfterCommit(unknown);
+        }
+
+        List<Genre> genres = new ArrayList<>(wanted.size());
+        for (String name : wanted) {
+            genres.add(entityManager.getReference(Genre.class, name));
+        }
+        return genres;
+    }
+
+    /**
+     * Drops a genre from the registry, must be called when a genre is deleted.
+     */
+    public void forget(String name) {
+        knownNames.remove(name);
+    }
+
+    // a genre created in a transaction that rolls back must not be remembered
+    private void rememberAfterCommit(List<String> names) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    knownNames.addAll(names);
+                }
+            });
+        } else {
+            knownNames.addAll(names);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package dev.tuvumba.azul_test_task.service.events;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ *  Published whenever books are written. <br>
+ *  Listeners (caches and other read models) use it to drop or refresh what they hold.
+ *  Most of them listen after the commit, so they never observe rolled back writes.
+ *
+ * @param changed IDs of books that were created or updated.
+ * @param deleted IDs of books that were removed.
+ * @param catalogWide true if the change can affect any book (e.g. an author or a genre was modified).
+ */
+public record BookChangedEvent(Set<Long> changed, Set<Long> deleted, boolean catalogWide) {
+
+    public static BookChangedEvent changed(Collection<Long> ids) {
+        return new BookChangedEvent(Set.copyOf(ids), Set.of(), false);
+    }
+
+    public static BookChangedEvent changed(Long id) {
+        return new BookChangedEvent(Set.of(id), Set.of(), false);
+    }
+
+    public static BookChangedEvent deleted(Collection<Long> ids) {
+        return new BookChangedEvent(Set.of(), Set.copyOf(ids), false);
+    }
+
+    public static BookChangedEvent everything() {
+        return new BookChangedEvent(Set.of(), Set.of(), true);
+    }
+}
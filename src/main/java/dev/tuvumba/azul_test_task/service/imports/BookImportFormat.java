@@ -0,0 +1,72 @@
+package dev.tuvumba.azul_test_task.service.imports;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+/**
+ *  Supported formats of the bulk import, see {@link NdjsonBookRowReader} and {@link CsvBookRowReader}. <br>
+ *  The export writes the same formats, so an exported file can be imported as is.
+ */
+public enum BookImportFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final MediaType mediaType;
+
+    BookImportFormat(String mediaType) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public static BookImportFormat fromContentType(String contentType) {
+        MediaType requested = MediaType.parseMediaType(contentType);
+        for (BookImportFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(requested)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported import format: " + contentType);
+    }
+
+    /**
+     * @param accept value of an Accept header, the first listed format that is supported wins.
+     */
+    public static BookImportFormat fromAccept(String accept) {
+        for (MediaType requested : MediaType.parseMediaTypes(accept)) {
+            for (BookImportFormat format : values()) {
+                if (format.mediaType.isCompatibleWith(requested)) {
+                    return format;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unsupported export format: " + accept);
+    }
+
+    public BookRowReader openReader(InputStream input, ObjectMapper objectMapper) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        return switch (this) {
+            case NDJSON -> new NdjsonBookRowReader(reader, objectMapper);
+            case CSV -> new CsvBookRowReader(reader);
+        };
+    }
+
+    public BookRowWriter openWriter(OutputStream output, ObjectMapper objectMapper) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        return switch (this) {
+            case NDJSON -> new NdjsonBookRowWriter(writer, objectMapper);
+            case CSV -> new CsvBookRowWriter(writer);
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package dev.tuvumba.azul_test_task.service.imports;
+
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+
+/**
+ *  A single row of a bulk import, either parsed into a book or failed with an error.
+ *
+ * @param line Line number in the imported file, starting from 1.
+ * @param book Parsed book, null if the row could not be parsed.
+ * @param error Parsing error, null if the row was parsed.
+ */
+public record BookRow(long line, BookDto book, String error) {
+
+    public static BookRow parsed(long line, BookDto book) {
+        return new BookRow(line, book, null);
+    }
+
+    public static BookRow failed(long line, String error) {
+        return new BookRow(line, null, error);
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+}
@@ -0,0 +1,17 @@
+package dev.tuvumba.azul_test_task.service.imports;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ *  Reads books of a bulk import one row at a time, so the whole file is never held in memory. <br>
+ *  A row that can not be parsed is returned as a failed row instead of stopping the import.
+ */
+public interface BookRowReader extends Closeable {
+
+    /**
+     * @return The next row, or null if the input is exhausted.
+     * @throws IOException if the input itself can not be read.
+     */
+    BookRow next() throws IOException;
+}
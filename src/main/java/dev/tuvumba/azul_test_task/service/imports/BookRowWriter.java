@@ -0,0 +1,14 @@
+package dev.tuvumba.azul_test_task.service.imports;
+
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ *  Writes books one by one in a format of {@link BookImportFormat}, so the output can be imported back.
+ */
+public interface BookRowWriter extends Closeable {
+
+    void write(BookDto book) throws IOException;
+}
@@ -0,0 +1,144 @@
+package dev.tuvumba.azul_test_task.service.imports;
+
+import dev.tuvumba.azul_test_task.domain.dto.AuthorDto;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.GenreDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ *  Reads CSV with a header row. <br>
+ *  Columns: id, name, price, quantity and optionally authors (author IDs separated by ';')
+ *  and genres (genre names separated by ';'). Column order is taken from the header. <br>
+ *  Fields may be quoted with '"' to contain commas, a quote inside a quoted field is written as "".
+ *  Quoted fields spanning several lines are not supported.
+ */
+public class CsvBookRowReader implements BookRowReader {
+
+    public static final List<String> COLUMNS = List.of("id", "name", "price", "quantity", "authors", "genres");
+    private static final List<String> REQUIRED_COLUMNS = COLUMNS.subList(0, 4);
+
+    private final BufferedReader reader;
+    private Map<String, Integer> columns;
+    private long line = 0;
+
+    public CsvBookRowReader(BufferedReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public BookRow next() throws IOException {
+        if (columns == null) {
+            readHeader();
+        }
+
+        String text;
+        do {
+            text = reader.readLine();
+            line++;
+            if (text == null) {
+                return null;
+            }
+        } while (text.isBlank());
+
+        try {
+            return BookRow.parsed(line, toBook(split(text)));
+        } catch (IllegalArgumentException e) {
+            return BookRow.failed(line, e.getMessage());
+        }
+    }
+
+    private void readHeader() throws IOException {
+        String header = reader.readLine();
+        line++;
+        if (header == null) {
+            throw new IllegalArgumentException("CSV input is empty, expected a header row.");
+        }
+        columns = new HashMap<>();
+        List<String> names = split(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV header is missing the '" + required + "' column.");
+            }
+        }
+    }
+
+    private BookDto toBook(List<String> fields) {
+        BookDto book = new BookDto();
+        book.setId(Long.parseLong(field(fields, "id")));
+        book.setName(field(fields, "name"));
+        book.setPrice(new BigDecimal(field(fields, "price")));
+        book.setQuantity(Integer.parseInt(field(fields, "quantity")));
+
+        List<AuthorDto> authors = new ArrayList<>();
+        for (String id : listField(fields, "authors")) {
+            authors.add(new AuthorDto(Long.parseLong(id), null, null));
+        }
+        book.setAuthors(authors);
+        book.setGenres(listField(fields, "genres").stream().map(GenreDto::new).toList());
+        return book;
+    }
+
+    private String field(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            throw new IllegalArgumentException("Missing value for '" + column + "'.");
+        }
+        return fields.get(index).trim();
+    }
+
+    private List<String> listField(List<String> fields, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size() || fields.get(index).isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(fields.get(index).split(";")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+    }
+
+    static List<String> split(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field.");
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,71 @@
+package dev.tuvumba.azul_test_task.service.imports;
+
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.GenreDto;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ *  Writes CSV with the columns of {@link CsvBookRowReader#COLUMNS}, authors as IDs and genres as names, both separated by ';'. <br>
+ *  Fields that contain a comma, a quote or a line break are quoted, line breaks are replaced with spaces
+ *  since the reader does not support fields spanning several lines.
+ */
+public class CsvBookRowWriter implements BookRowWriter {
+
+    private final Writer writer;
+
+    public CsvBookRowWriter(Writer writer) throws IOException {
+        this.writer = writer;
+        writer.write(String.join(",", CsvBookRowReader.COLUMNS));
+        writer.write('\n');
+    }
+
+    @Override
+    public void write(BookDto book) throws IOException {
+        writer.write(String.valueOf(book.getId()));
+        writer.write(',');
+        writer.write(quote(book.getName()));
+        writer.write(',');
+        writer.write(book.getPrice() == null ? "" : book.getPrice().toPlainString());
+        writer.write(',');
+        writer.write(String.valueOf(book.getQuantity()));
+        writer.write(',');
+        writer.write(join(book.getAuthors(), author -> String.valueOf(author.getId())));
+        writer.write(',');
+        writer.write(quote(join(book.getGenres(), GenreDto::getName)));
+        writer.write('\n');
+    }
+
+    private static <T> String join(List<T> values, Function<T, String> field) {
+        if (values == null || values.isEmpty()) {
+            return "";
+        }
+        StringBuilder joined = new StringBuilder();
+        for (T value : values) {
+            if (!joined.isEmpty()) {
+                joined.append(';');
+            }
+            joined.append(field.apply(value));
+        }
+        return joined.toString();
+    }
+
+    static String quote(String field) {
+        if (field == null) {
+            return "";
+        }
+        String line = field.replace('\r', ' ').replace('\n', ' ');
+        if (line.indexOf(',') < 0 && line.indexOf('"') < 0) {
+            return line;
+        }
+        return '"' + line.replace("\"", "\"\"") + '"';
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,47 @@
+package dev.tuvumba.azul_test_task.service.imports;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ *  Reads newline-delimited JSON, one {@link BookDto} per line. Blank lines are skipped.
+ */
+public class NdjsonBookRowReader implements BookRowReader {
+
+    private final BufferedReader reader;
+    private final ObjectReader bookReader;
+    private long line = 0;
+
+    public NdjsonBookRowReader(BufferedReader reader, ObjectMapper objectMapper) {
+        this.reader = reader;
+        this.bookReader = objectMapper.readerFor(BookDto.class);
+    }
+
+    @Override
+    public BookRow next() throws IOException {
+        String text;
+        do {
+            text = reader.readLine();
+            line++;
+            if (text == null) {
+                return null;
+            }
+        } while (text.isBlank());
+
+        try {
+            return BookRow.parsed(line, bookReader.readValue(text));
+        } catch (JsonProcessingException e) {
+            return BookRow.failed(line, "Invalid JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,30 @@
+package dev.tuvumba.azul_test_task.service.imports;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ *  Writes newline-delimited JSON, one {@link BookDto} per line, as read by {@link NdjsonBookRowReader}.
+ */
+public class NdjsonBookRowWriter implements BookRowWriter {
+
+    private final SequenceWriter writer;
+
+    public NdjsonBookRowWriter(Writer writer, ObjectMapper objectMapper) throws IOException {
+        this.writer = objectMapper.writerFor(BookDto.class).withRootValueSeparator("\n").writeValues(writer);
+    }
+
+    @Override
+    public void write(BookDto book) throws IOException {
+        writer.write(book);
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
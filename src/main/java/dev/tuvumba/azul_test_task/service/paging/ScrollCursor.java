@@ -0,0 +1,97 @@
+package dev.tuvumba.azul_test_task.service.paging;
+
+import org.springframework.core.convert.ConversionException;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+
+/**
+ *  Turns keyset scroll positions into opaque cursor tokens and back. <br>
+ *  A token holds the sort key values of the last returned row (plus its ID), so the next page is
+ *  fetched with a seek on the index instead of an OFFSET scan.
+ */
+public final class ScrollCursor {
+
+    private static final String INVALID_CURSOR = "Invalid cursor.";
+    private static final String ID = "id";
+
+    private ScrollCursor() {
+    }
+
+    /**
+     * @return an URL-safe token for the position, or null if there is nothing to continue from.
+     */
+    public static String encode(ScrollPosition position) {
+        if (!(position instanceof KeysetScrollPosition keyset) || keyset.isInitial()) {
+            return null;
+        }
+        StringJoiner joiner = new StringJoiner("&");
+        keyset.getKeys().forEach((key, value) -> joiner.add(
+                URLEncoder.encode(key, StandardCharsets.UTF_8) + "=" + URLEncoder.encode(String.valueOf(value), StandardCharsets.UTF_8)));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joiner.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode(ScrollPosition)}. A blank token means the first page. <br>
+     * The token must hold exactly the sorted properties and the ID, values are converted back to the types of the entity's fields.
+     *
+     * @param sort the sort of the request, the cursor must have been produced with the same one.
+     * @throws IllegalArgumentException if the token is malformed or does not match the sort.
+     */
+    public static KeysetScrollPosition decode(String token, Class<?> entityType, Sort sort) {
+        if (token == null || token.isBlank()) {
+            return ScrollPosition.keyset();
+        }
+
+        Map<String, String> values = new LinkedHashMap<>();
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            for (String pair : decoded.split("&")) {
+                int separator = pair.indexOf('=');
+                if (separator < 1) {
+                    throw new IllegalArgumentException(INVALID_CURSOR);
+                }
+                values.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(INVALID_CURSOR, e);
+        }
+
+        // the keyset has every sorted property and the ID, which Spring Data adds when it's not sorted by it. Any other
+        // key is forged and must not reach the query.
+        Set<String> expected = new HashSet<>();
+        sort.forEach(order -> expected.add(order.getProperty()));
+        expected.add(ID);
+        if (!values.keySet().equals(expected)) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort.");
+        }
+
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            values.forEach((key, value) -> {
+                Field field = ReflectionUtils.findField(entityType, key);
+                if (field == null) {
+                    throw new IllegalArgumentException(INVALID_CURSOR);
+                }
+                keys.put(key, DefaultConversionService.getSharedInstance().convert(value, field.getType()));
+            });
+        } catch (ConversionException e) {
+            throw new IllegalArgumentException(INVALID_CURSOR, e);
+        }
+        return ScrollPosition.forward(keys);
+    }
+}
@@ -0,0 +1,65 @@
+package dev.tuvumba.azul_test_task.service.retry;
+
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ *  Runs a write again when it lost an optimistic lock race to a concurrent write. <br>
+ *  Only for writes that can be safely applied again on top of the newer state (e.g. a PATCH of absolute values),
+ *  each attempt must run in its own transaction, so call it from outside the transactional service.
+ *  Attempts are spaced by an exponential backoff with jitter, so the writers that collided do not collide again.
+ */
+@Component
+public class OptimisticLockRetry {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(OptimisticLockRetry.class);
+
+    private final int maxAttempts;
+    private final Duration backoff;
+
+    public OptimisticLockRetry(@Value("${books.update.retry.max-attempts:3}") int maxAttempts,
+                               @Value("${books.update.retry.backoff:20ms}") Duration backoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("books.update.retry.max-attempts must be at least 1.");
+        }
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+    }
+
+    /**
+     * @throws OptimisticLockingFailureException of the last attempt, if all of them failed.
+     */
+    public <T> T run(Supplier<T> write) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write.get();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    logger.warn("Giving up after {} conflicting attempts: {}", attempt, e.getMessage());
+                    throw e;
+                }
+                logger.debug("Attempt {} lost to a concurrent write, retrying", attempt);
+                sleep(attempt);
+            }
+        }
+    }
+
+    private void sleep(int attempt) {
+        long bound = backoff.toMillis() << (attempt - 1);
+        if (bound <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(bound / 2 + ThreadLocalRandom.current().nextLong(bound / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting to retry.", e);
+        }
+    }
+}
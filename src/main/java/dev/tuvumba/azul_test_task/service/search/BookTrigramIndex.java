@@ -0,0 +1,305 @@
+package dev.tuvumba.azul_test_task.service.search;
+
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.repository.projections.BookAuthorName;
+import dev.tuvumba.azul_test_task.repository.projections.BookSearchFields;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ *  In-memory trigram inverted index over book titles and author names. <br>
+ *  Every three-character sequence of a lower-cased text points to the books containing it.
+ *  A substring query intersects the posting lists of its own trigrams, starting from the shortest one,
+ *  and checks the survivors against the text, so its cost follows the number of candidates and not the catalog size. <br>
+ *  Built once the application is ready and kept up to date after every committed write, see {@link BookChangedEvent}.
+ *  A catalog-wide change (an author or a genre) rebuilds it on a background thread, searches keep using the previous index
+ *  until the new one is swapped in.
+ */
+@Component
+@ConditionalOnProperty(name = "books.search.mode", havingValue = "index")
+public class BookTrigramIndex {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(BookTrigramIndex.class);
+
+    private static final int GRAM = 3;
+    // keeps trigrams from spanning two author names
+    private static final String NAME_SEPARATOR = "\u0000";
+
+    public enum Field { TITLE, AUTHOR }
+
+    /**
+     * Ordered IDs of one page of matches, together with the number of all matches.
+     */
+    public record Hits(List<Long> ids, long total) {
+    }
+
+    private record Document(BookSearchFields book, String title, String authors) {
+        String text(Field field) {
+            return field == Field.TITLE ? title : authors;
+        }
+    }
+
+    private static final class Postings {
+        private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> titles = new ConcurrentHashMap<>();
+        private final Map<String, Set<Long>> authors = new ConcurrentHashMap<>();
+
+        Map<String, Set<Long>> of(Field field) {
+            return field == Field.TITLE ? titles : authors;
+        }
+    }
+
+    private final BookRepository bookRepository;
+    // not a monitor: a rebuild queries the database while holding it, which would pin a virtual thread to its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile Postings postings = new Postings();
+    private volatile boolean ready;
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private final Executor rebuilder;
+
+    @Autowired
+    public BookTrigramIndex(BookRepository bookRepository) {
+        this(bookRepository, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trigram-index");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    BookTrigramIndex(BookRepository bookRepository, Executor rebuilder) {
+        this.bookRepository = bookRepository;
+        this.rebuilder = rebuilder;
+    }
+
+    /**
+     * @return false until the first build has finished, callers should fall back to the database meanwhile.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Builds the index from scratch. Holds the lock for the whole build, so no incremental update is lost in between.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.lock();
+        try {
+            long start = System.nanoTime();
+            Postings rebuilt = new Postings();
+            List<BookSearchFields> books = bookRepository.findAllSearchFields();
+            Map<Long, List<String>> authorNames = groupAuthorNames(bookRepository.findAllAuthorNames());
+            for (BookSearchFields book : books) {
+                add(rebuilt, book, authorNames.getOrDefault(book.id(), List.of()));
+            }
+
+            postings = rebuilt;
+            ready = true;
+            logger.debug("Indexed {} books in {} ms", books.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.catalogWide()) {
+            // catalog-wide changes that come while one is waiting are covered by the same rebuild
+            if (rebuildRequested.compareAndSet(false, true)) {
+                rebuilder.execute(this::rebuildQuietly);
+            }
+            return;
+        }
+
+        List<BookSearchFields> changed = event.changed().isEmpty() ? List.of() : bookRepository.findSearchFields(event.changed());
+        Map<Long, List<String>> authorNames = event.changed().isEmpty() ? Map.of() : groupAuthorNames(bookRepository.findAuthorNames(event.changed()));
+
+        lock.lock();
+        try {
+            Postings current = postings;
+            event.deleted().forEach(id -> remove(current, id));
+            event.changed().forEach(id -> remove(current, id));
+            changed.forEach(book -> add(current, book, authorNames.getOrDefault(book.id(), List.of())));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (rebuilder instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    private void rebuildQuietly() {
+        rebuildRequested.set(false);
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            logger.error("Rebuilding the trigram index failed, keeping the previous one", e);
+        }
+    }
+
+    /**
+     * @return number of trigrams with a posting list.
+     */
+    int postingLists(Field field) {
+        return postings.of(field).size();
+    }
+
+    /**
+     * Finds books whose field contains the query, case-insensitive.
+     *
+     * @param pageable page and sort of the result, sortable by id, name, price and quantity.
+     * @throws IllegalArgumentException if sorted by another property.
+     */
+    public Hits search(Field field, String query, Pageable pageable) {
+        Comparator<BookSearchFields> order = comparator(pageable.getSort());
+        String needle = query.toLowerCase(Locale.ROOT);
+        Postings current = postings;
+
+        List<BookSearchFields> matches = new ArrayList<>();
+        for (Long id : candidates(current, field, needle)) {
+            Document document = current.documents.get(id);
+            if (document != null && document.text(field).contains(needle)) {
+                matches.add(document.book());
+            }
+        }
+        matches.sort(order);
+
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        List<Long> ids = new ArrayList<>(to - from);
+        for (BookSearchFields book : matches.subList(from, to)) {
+            ids.add(book.id());
+        }
+        return new Hits(ids, matches.size());
+    }
+
+    /**
+     * Books that have every trigram of the needle. Needles shorter than a trigram match everything and are checked one by one.
+     */
+    private static Collection<Long> candidates(Postings current, Field field, String needle) {
+        if (needle.length() < GRAM) {
+            return current.documents.keySet();
+        }
+
+        List<Set<Long>> lists = new ArrayList<>();
+        for (String gram : trigrams(needle)) {
+            Set<Long> list = current.of(field).get(gram);
+            if (list == null) {
+                return List.of();
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<Long> shortest = lists.get(0);
+        List<Long> result = new ArrayList<>(shortest.size());
+        for (Long id : shortest) {
+            boolean inAll = true;
+            for (int i = 1; i < lists.size() && inAll; i++) {
+                inAll = lists.get(i).contains(id);
+            }
+            if (inAll) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static void add(Postings target, BookSearchFields book, List<String> authorNames) {
+        String title = book.name() == null ? "" : book.name().toLowerCase(Locale.ROOT);
+        String authors = String.join(NAME_SEPARATOR, authorNames).toLowerCase(Locale.ROOT);
+        target.documents.put(book.id(), new Document(book, title, authors));
+        for (String gram : trigrams(title)) {
+            target.titles.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(book.id());
+        }
+        for (String gram : trigrams(authors)) {
+            target.authors.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(book.id());
+        }
+    }
+
+    private static void remove(Postings target, Long id) {
+        Document document = target.documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (Field field : Field.values()) {
+            for (String gram : trigrams(document.text(field))) {
+                Set<Long> list = target.of(field).get(gram);
+                // lists are only added to under the lock, an empty one stays empty until it is dropped
+                if (list != null && list.remove(id) && list.isEmpty()) {
+                    target.of(field).remove(gram);
+                }
+            }
+        }
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static Map<Long, List<String>> groupAuthorNames(List<BookAuthorName> rows) {
+        Map<Long, List<String>> names = new HashMap<>();
+        for (BookAuthorName row : rows) {
+            names.computeIfAbsent(row.bookId(), id -> new ArrayList<>()).add(row.displayName());
+        }
+        return names;
+    }
+
+    private static Comparator<BookSearchFields> comparator(Sort sort) {
+        Comparator<BookSearchFields> order = null;
+        for (Sort.Order sortOrder : sort) {
+            Comparator<BookSearchFields> next = switch (sortOrder.getProperty()) {
+                case "id" -> Comparator.comparing(BookSearchFields::id);
+                case "name" -> nullsLast(BookSearchFields::name);
+                case "price" -> nullsLast(BookSearchFields::price);
+                case "quantity" -> Comparator.comparingInt(BookSearchFields::quantity);
+                default -> throw new IllegalArgumentException("Cannot sort search results by '" + sortOrder.getProperty() + "'.");
+            };
+            if (sortOrder.isDescending()) {
+                next = next.reversed();
+            }
+            order = order == null ? next : order.thenComparing(next);
+        }
+        // the ID keeps pages stable when the sort key has duplicates
+        Comparator<BookSearchFields> byId = Comparator.comparing(BookSearchFields::id);
+        return order == null ? byId : order.thenComparing(byId);
+    }
+
+    private static <U extends Comparable<? super U>> Comparator<BookSearchFields> nullsLast(Function<BookSearchFields, U> key) {
+        return Comparator.comparing(key, Comparator.nullsLast(Comparator.naturalOrder()));
+    }
+}
@@ -0,0 +1,64 @@
+package dev.tuvumba.azul_test_task.service.search;
+
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.service.base.BookSearch;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *  Search answered by {@link BookTrigramIndex}, the database only loads the books of the requested page by ID. <br>
+ *  The total is known from the index, so results are always counted.
+ *  Until the index is built, queries go to the database as in the LIKE mode.
+ */
+@Component
+@ConditionalOnProperty(name = "books.search.mode", havingValue = "index")
+public class IndexedBookSearch implements BookSearch {
+
+    private final BookTrigramIndex index;
+    private final BookRepository bookRepository;
+
+    public IndexedBookSearch(BookTrigramIndex index, BookRepository bookRepository) {
+        this.index = index;
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    public Slice<Book> findByTitleContaining(String title, Pageable pageable, boolean withCount) {
+        if (!index.isReady()) {
+            return bookRepository.findBooksByNameContainingIgnoreCase(title, pageable);
+        }
+        return load(index.search(BookTrigramIndex.Field.TITLE, title, pageable), pageable);
+    }
+
+    @Override
+    public Slice<Book> findByAuthorNameContaining(String authorName, Pageable pageable, boolean withCount) {
+        if (!index.isReady()) {
+            return bookRepository.findBooksByAuthorNameContaining(authorName, pageable);
+        }
+        return load(index.search(BookTrigramIndex.Field.AUTHOR, authorName, pageable), pageable);
+    }
+
+    private Slice<Book> load(BookTrigramIndex.Hits hits, Pageable pageable) {
+        Map<Long, Book> byId = new HashMap<>();
+        bookRepository.findAllById(hits.ids()).forEach(book -> byId.put(book.getId(), book));
+
+        // keep the order of the index, a book deleted in the meantime is skipped
+        List<Book> books = new ArrayList<>(hits.ids().size());
+        for (Long id : hits.ids()) {
+            Book book = byId.get(id);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return new PageImpl<>(books, pageable, hits.total());
+    }
+}
@@ -0,0 +1,38 @@
+package dev.tuvumba.azul_test_task.service.search;
+
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.service.base.BookSearch;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.stereotype.Component;
+
+/**
+ *  Default search, a case-insensitive LIKE in the database. <br>
+ *  Needs no extra memory or indexes, but scans the whole table on every query.
+ */
+@Component
+@ConditionalOnProperty(name = "books.search.mode", havingValue = "like", matchIfMissing = true)
+public class LikeBookSearch implements BookSearch {
+
+    private final BookRepository bookRepository;
+
+    public LikeBookSearch(BookRepository bookRepository) {
+        this.bookRepository = bookRepository;
+    }
+
+    @Override
+    public Slice<Book> findByTitleContaining(String title, Pageable pageable, boolean withCount) {
+        return withCount
+                ? bookRepository.findBooksByNameContainingIgnoreCase(title, pageable)
+                : bookRepository.findBookSliceByNameContainingIgnoreCase(title, pageable);
+    }
+
+    @Override
+    public Slice<Book> findByAuthorNameContaining(String authorName, Pageable pageable, boolean withCount) {
+        return withCount
+                ? bookRepository.findBooksByAuthorNameContaining(authorName, pageable)
+                : bookRepository.findBookSliceByAuthorNameContaining(authorName, pageable);
+    }
+}
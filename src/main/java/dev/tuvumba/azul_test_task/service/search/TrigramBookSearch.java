@@ -0,0 +1,59 @@
+package dev.tuvumba.azul_test_task.service.search;
+
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.service.base.BookSearch;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ *  Search through PostgreSQL trigram (pg_trgm) indexes on book titles and author names. <br>
+ *  The indexes are created on startup from db/trigram-search.sql, after the schema script has run.
+ *  Results are ordered by relevance (trigram word similarity to the query), the requested sort is not applied.
+ */
+@Component
+@ConditionalOnProperty(name = "books.search.mode", havingValue = "trigram")
+public class TrigramBookSearch implements BookSearch {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(TrigramBookSearch.class);
+
+    private final BookRepository bookRepository;
+    private final DataSource dataSource;
+
+    public TrigramBookSearch(BookRepository bookRepository, DataSource dataSource) {
+        this.bookRepository = bookRepository;
+        this.dataSource = dataSource;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        new ResourceDatabasePopulator(new ClassPathResource("db/trigram-search.sql")).execute(dataSource);
+        logger.debug("Trigram search indexes are in place");
+    }
+
+    @Override
+    public Slice<Book> findByTitleContaining(String title, Pageable pageable, boolean withCount) {
+        Pageable byRelevance = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        return withCount
+                ? bookRepository.searchByTitleTrigram(title, byRelevance)
+                : bookRepository.searchSliceByTitleTrigram(title, byRelevance);
+    }
+
+    @Override
+    public Slice<Book> findByAuthorNameContaining(String authorName, Pageable pageable, boolean withCount) {
+        Pageable byRelevance = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        return withCount
+                ? bookRepository.searchByAuthorNameTrigram(authorName, byRelevance)
+                : bookRepository.searchSliceByAuthorNameTrigram(authorName, byRelevance);
+    }
+}
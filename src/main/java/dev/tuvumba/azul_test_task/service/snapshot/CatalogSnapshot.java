@@ -0,0 +1,427 @@
+package dev.tuvumba.azul_test_task.service.snapshot;
+
+import dev.tuvumba.azul_test_task.domain.dto.AuthorDto;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.GenreDto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ *  Immutable copy of the whole catalog in flat arrays, one slot per book in ascending ISBN order. <br>
+ *  Prices are kept in minor units and authors and genres as int references into their own tables,
+ *  so a book costs a few dozen bytes plus its name instead of an entity graph.
+ *  Lookups by ISBN, author and genre are binary searches, ranges and sorting go through precomputed orders by name, price and quantity. <br>
+ *  Never changed once built: a write builds a new snapshot (see {@link CatalogSnapshotHolder}) and readers keep the one they started with.
+ */
+final class CatalogSnapshot {
+
+    // DECIMAL(10,2), see data.sql
+    static final int PRICE_SCALE = 2;
+    // prices are never negative, see Product
+    private static final long NO_PRICE = -1;
+
+    // sizes on a 64-bit JVM with compressed references and compact strings, the default below a 32 GB heap
+    private static final int ARRAY_HEADER = 16;
+    private static final int STRING_HEADER = 24;
+    private static final int REFERENCE = 4;
+
+    private static final BigDecimal MAX_MINOR_UNITS = BigDecimal.valueOf(Long.MAX_VALUE);
+
+    /**
+     * One book, as loaded from the database or taken back out of a snapshot.
+     */
+    record Row(long id, String name, long price, int quantity, long version, long[] authorIds, String[] genreNames) {
+    }
+
+    private final long[] ids;
+    private final String[] names;
+    private final long[] prices;
+    private final int[] quantities;
+    private final long[] versions;
+
+    // authors of book b are authorRefs[authorStart[b] .. authorStart[b + 1]), genres alike
+    private final int[] authorStart;
+    private final int[] authorRefs;
+    private final int[] genreStart;
+    private final int[] genreRefs;
+
+    // authors and genres referenced by some book, ascending by ID and name
+    private final long[] authorIds;
+    private final String[] authorNames;
+    private final String[] authorDescriptions;
+    private final String[] genreNames;
+
+    // books of author a are authorBooks[authorBookStart[a] .. authorBookStart[a + 1]), in slot order, genres alike
+    private final int[] authorBookStart;
+    private final int[] authorBooks;
+    private final int[] genreBookStart;
+    private final int[] genreBooks;
+
+    // byName[r] is the r-th book sorted by name (nulls last, then ISBN) and nameRank[b] the position of book b, the same for price and quantity
+    private final int[] byName;
+    private final int[] nameRank;
+    private final int[] byPrice;
+    private final int[] priceRank;
+    private final int[] byQuantity;
+    private final int[] quantityRank;
+
+    private final long bytes;
+
+    private CatalogSnapshot(List<Row> rows, Map<Long, AuthorDto> authors) {
+        int size = rows.size();
+        ids = new long[size];
+        names = new String[size];
+        prices = new long[size];
+        quantities = new int[size];
+        versions = new long[size];
+        for (int book = 0; book < size; book++) {
+            Row row = rows.get(book);
+            ids[book] = row.id();
+            names[book] = row.name();
+            prices[book] = row.price();
+            quantities[book] = row.quantity();
+            versions[book] = row.version();
+        }
+
+        Set<Long> referencedAuthors = new TreeSet<>();
+        Set<String> referencedGenres = new TreeSet<>();
+        for (Row row : rows) {
+            Arrays.stream(row.authorIds()).forEach(referencedAuthors::add);
+            referencedGenres.addAll(Arrays.asList(row.genreNames()));
+        }
+        authorIds = referencedAuthors.stream().mapToLong(Long::longValue).toArray();
+        authorNames = new String[authorIds.length];
+        authorDescriptions = new String[authorIds.length];
+        for (int author = 0; author < authorIds.length; author++) {
+            AuthorDto details = authors.get(authorIds[author]);
+            if (details != null) {
+                authorNames[author] = details.getDisplayName();
+                authorDescriptions[author] = details.getDescription();
+            }
+        }
+        genreNames = referencedGenres.toArray(String[]::new);
+
+        authorStart = new int[size + 1];
+        genreStart = new int[size + 1];
+        for (int book = 0; book < size; book++) {
+            authorStart[book + 1] = authorStart[book] + rows.get(book).authorIds().length;
+            genreStart[book + 1] = genreStart[book] + rows.get(book).genreNames().length;
+        }
+        authorRefs = new int[authorStart[size]];
+        genreRefs = new int[genreStart[size]];
+        for (int book = 0; book < size; book++) {
+            long[] bookAuthors = rows.get(book).authorIds();
+            for (int i = 0; i < bookAuthors.length; i++) {
+                authorRefs[authorStart[book] + i] = Arrays.binarySearch(authorIds, bookAuthors[i]);
+            }
+            String[] bookGenres = rows.get(book).genreNames();
+            for (int i = 0; i < bookGenres.length; i++) {
+                genreRefs[genreStart[book] + i] = Arrays.binarySearch(genreNames, bookGenres[i]);
+            }
+        }
+
+        authorBookStart = new int[authorIds.length + 1];
+        authorBooks = invert(authorStart, authorRefs, authorBookStart);
+        genreBookStart = new int[genreNames.length + 1];
+        genreBooks = invert(genreStart, genreRefs, genreBookStart);
+
+        byName = order(size, Comparator.comparing(book -> names[book], Comparator.nullsLast(Comparator.naturalOrder())));
+        nameRank = rank(byName);
+        byPrice = order(size, Comparator.comparingLong(book -> prices[book]));
+        priceRank = rank(byPrice);
+        byQuantity = order(size, Comparator.comparingInt(book -> quantities[book]));
+        quantityRank = rank(byQuantity);
+
+        bytes = measure();
+    }
+
+    /**
+     * @param rows    books of the catalog, one per ISBN.
+     * @param authors details of the authors of the books, authors without a book are left out.
+     */
+    static CatalogSnapshot of(Collection<Row> rows, Map<Long, AuthorDto> authors) {
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(Comparator.comparingLong(Row::id));
+        return new CatalogSnapshot(sorted, authors);
+    }
+
+    /**
+     * The books of this snapshot except the given ones, to build the next snapshot from.
+     */
+    List<Row> rowsExcept(Set<Long> excluded) {
+        List<Row> rows = new ArrayList<>(ids.length);
+        for (int book = 0; book < ids.length; book++) {
+            if (excluded.contains(ids[book])) {
+                continue;
+            }
+            long[] bookAuthors = new long[authorStart[book + 1] - authorStart[book]];
+            for (int i = 0; i < bookAuthors.length; i++) {
+                bookAuthors[i] = authorIds[authorRefs[authorStart[book] + i]];
+            }
+            String[] bookGenres = new String[genreStart[book + 1] - genreStart[book]];
+            for (int i = 0; i < bookGenres.length; i++) {
+                bookGenres[i] = genreNames[genreRefs[genreStart[book] + i]];
+            }
+            rows.add(new Row(ids[book], names[book], prices[book], quantities[book], versions[book], bookAuthors, bookGenres));
+        }
+        return rows;
+    }
+
+    /**
+     * Details of the authors of this snapshot, to build the next snapshot from.
+     */
+    Map<Long, AuthorDto> authors() {
+        Map<Long, AuthorDto> authors = new HashMap<>();
+        for (int author = 0; author < authorIds.length; author++) {
+            authors.put(authorIds[author], new AuthorDto(authorIds[author], authorNames[author], authorDescriptions[author]));
+        }
+        return authors;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Estimated heap taken by the arrays of this snapshot and the strings they hold.
+     */
+    long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return slot of the book, negative if it is not in the catalog.
+     */
+    int indexOf(long id) {
+        return Arrays.binarySearch(ids, id);
+    }
+
+    long version(int book) {
+        return versions[book];
+    }
+
+    /**
+     * A new DTO on every call, so callers may change it.
+     */
+    BookDto toDto(int book) {
+        List<AuthorDto> authors = new ArrayList<>(authorStart[book + 1] - authorStart[book]);
+        for (int i = authorStart[book]; i < authorStart[book + 1]; i++) {
+            int author = authorRefs[i];
+            authors.add(new AuthorDto(authorIds[author], authorNames[author], authorDescriptions[author]));
+        }
+        List<GenreDto> genres = new ArrayList<>(genreStart[book + 1] - genreStart[book]);
+        for (int i = genreStart[book]; i < genreStart[book + 1]; i++) {
+            genres.add(new GenreDto(genreNames[genreRefs[i]]));
+        }
+
+        BookDto dto = new BookDto(authors, genres);
+        dto.setId(ids[book]);
+        dto.setName(names[book]);
+        dto.setPrice(prices[book] == NO_PRICE ? null : BigDecimal.valueOf(prices[book], PRICE_SCALE));
+        dto.setQuantity(quantities[book]);
+        dto.setVersion(versions[book]);
+        return dto;
+    }
+
+    /**
+     * Books priced between the bounds, inclusive.
+     */
+    int[] withPriceBetween(BigDecimal from, BigDecimal to) {
+        long low = Math.max(toMinorUnits(from, RoundingMode.CEILING), 0);
+        long high = toMinorUnits(to, RoundingMode.FLOOR);
+        if (low > high) {
+            return new int[0];
+        }
+        int start = firstAtLeast(byPrice, book -> prices[book], low);
+        int end = high == Long.MAX_VALUE ? byPrice.length : firstAtLeast(byPrice, book -> prices[book], high + 1);
+        return Arrays.copyOfRange(byPrice, start, end);
+    }
+
+    /**
+     * Books with a quantity between the bounds, inclusive.
+     */
+    int[] withQuantityBetween(int from, int to) {
+        if (from > to) {
+            return new int[0];
+        }
+        int start = firstAtLeast(byQuantity, book -> quantities[book], from);
+        int end = firstAtLeast(byQuantity, book -> quantities[book], (long) to + 1);
+        return Arrays.copyOfRange(byQuantity, start, end);
+    }
+
+    int[] byGenre(String name) {
+        int genre = Arrays.binarySearch(genreNames, name);
+        return genre < 0 ? new int[0] : Arrays.copyOfRange(genreBooks, genreBookStart[genre], genreBookStart[genre + 1]);
+    }
+
+    int[] byAuthor(long id) {
+        int author = Arrays.binarySearch(authorIds, id);
+        return author < 0 ? new int[0] : Arrays.copyOfRange(authorBooks, authorBookStart[author], authorBookStart[author + 1]);
+    }
+
+    /**
+     * True for no sort or a single case-sensitive sort by id, name, price or quantity, the orders kept by the snapshot.
+     */
+    static boolean supports(Sort sort) {
+        if (sort.isUnsorted()) {
+            return true;
+        }
+        List<Sort.Order> orders = sort.toList();
+        if (orders.size() != 1) {
+            return false;
+        }
+        Sort.Order order = orders.get(0);
+        return !order.isIgnoreCase() && order.getNullHandling() == Sort.NullHandling.NATIVE
+                && List.of("id", "name", "price", "quantity").contains(order.getProperty());
+    }
+
+    /**
+     * Sorts the matching books by the sort of the page and cuts the page out of them.
+     * Only for sorts the snapshot {@link #supports(Sort)}, unsorted pages are in ISBN order.
+     */
+    int[] page(int[] matches, Pageable pageable) {
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(null);
+        String property = order == null ? "id" : order.getProperty();
+        int[] sortedBy = switch (property) {
+            case "name" -> byName;
+            case "price" -> byPrice;
+            case "quantity" -> byQuantity;
+            default -> null;
+        };
+        int[] rank = switch (property) {
+            case "name" -> nameRank;
+            case "price" -> priceRank;
+            case "quantity" -> quantityRank;
+            default -> null;
+        };
+
+        // sorting positions instead of books keeps it a primitive sort
+        int[] positions = new int[matches.length];
+        for (int i = 0; i < matches.length; i++) {
+            positions[i] = rank == null ? matches[i] : rank[matches[i]];
+        }
+        Arrays.sort(positions);
+
+        int from = (int) Math.min(pageable.getOffset(), positions.length);
+        int to = Math.min(from + pageable.getPageSize(), positions.length);
+        boolean descending = order != null && order.isDescending();
+        int[] page = new int[to - from];
+        for (int i = 0; i < page.length; i++) {
+            int position = positions[descending ? positions.length - 1 - from - i : from + i];
+            page[i] = sortedBy == null ? position : sortedBy[position];
+        }
+        return page;
+    }
+
+    static long toMinorUnits(BigDecimal price) {
+        return price == null ? NO_PRICE : price.setScale(PRICE_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static long toMinorUnits(BigDecimal bound, RoundingMode rounding) {
+        BigDecimal minorUnits = bound.setScale(PRICE_SCALE, rounding).movePointRight(PRICE_SCALE);
+        if (minorUnits.compareTo(MAX_MINOR_UNITS) > 0) {
+            return Long.MAX_VALUE;
+        }
+        return minorUnits.signum() < 0 ? -1 : minorUnits.longValueExact();
+    }
+
+    private interface Key {
+        long of(int book);
+    }
+
+    /**
+     * First position in the order whose key is at least the value, the length of the order if there is none.
+     */
+    private static int firstAtLeast(int[] order, Key key, long value) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (key.of(order[middle]) < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Slots sorted by the comparator, ties in slot (ISBN) order.
+     */
+    private static int[] order(int size, Comparator<Integer> comparator) {
+        Integer[] books = new Integer[size];
+        for (int book = 0; book < size; book++) {
+            books[book] = book;
+        }
+        Arrays.sort(books, comparator.thenComparingInt(Integer::intValue));
+        return Arrays.stream(books).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] rank(int[] order) {
+        int[] rank = new int[order.length];
+        for (int position = 0; position < order.length; position++) {
+            rank[order[position]] = position;
+        }
+        return rank;
+    }
+
+    /**
+     * Turns per-book references into per-target lists of books, filling targetStart along the way.
+     */
+    private static int[] invert(int[] bookStart, int[] refs, int[] targetStart) {
+        for (int ref : refs) {
+            targetStart[ref + 1]++;
+        }
+        for (int target = 0; target + 1 < targetStart.length; target++) {
+            targetStart[target + 1] += targetStart[target];
+        }
+        int[] books = new int[refs.length];
+        int[] next = Arrays.copyOf(targetStart, targetStart.length - 1);
+        for (int book = 0; book + 1 < bookStart.length; book++) {
+            for (int i = bookStart[book]; i < bookStart[book + 1]; i++) {
+                books[next[refs[i]]++] = book;
+            }
+        }
+        return books;
+    }
+
+    private long measure() {
+        long total = array(ids.length, Long.BYTES) + strings(names) + array(prices.length, Long.BYTES)
+                + array(quantities.length, Integer.BYTES) + array(versions.length, Long.BYTES)
+                + array(authorIds.length, Long.BYTES) + strings(authorNames) + strings(authorDescriptions) + strings(genreNames);
+        for (int[] ints : new int[][]{authorStart, authorRefs, genreStart, genreRefs, authorBookStart, authorBooks, genreBookStart, genreBooks,
+                byName, nameRank, byPrice, priceRank, byQuantity, quantityRank}) {
+            total += array(ints.length, Integer.BYTES);
+        }
+        return total;
+    }
+
+    private static long strings(String[] values) {
+        long total = array(values.length, REFERENCE);
+        for (String value : values) {
+            if (value != null) {
+                boolean latin1 = value.chars().allMatch(c -> c < 0x100);
+                total += STRING_HEADER + array(value.length(), latin1 ? 1 : 2);
+            }
+        }
+        return total;
+    }
+
+    private static long array(int length, int elementSize) {
+        long size = ARRAY_HEADER + (long) length * elementSize;
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,286 @@
+package dev.tuvumba.azul_test_task.service.snapshot;
+
+import dev.tuvumba.azul_test_task.domain.dto.AuthorDto;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.repository.AuthorRepository;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.repository.projections.BookAuthorId;
+import dev.tuvumba.azul_test_task.repository.projections.BookGenreName;
+import dev.tuvumba.azul_test_task.repository.projections.BookSnapshotFields;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *  Holds the current {@link CatalogSnapshot} and republishes it after committed writes, see {@link BookChangedEvent}. <br>
+ *  Copy-on-write: a change reloads only the written books, copies the rest out of the current snapshot and swaps in the new one,
+ *  so readers never wait and never see a half-applied change. <br>
+ *  The committing thread only records the IDs of the written books, a single background thread republishes.
+ *  Writes that commit while it runs are taken together by its next run, so a burst of writes costs a few passes
+ *  over the whole catalog and not one each, and writers never wait for a pass. Readers, the writer included,
+ *  see the previous state until then, and so do the entity tags: {@link CatalogVersion} counts a change when it is published here. <br>
+ *  The size of the snapshot is published as books.snapshot.memory, in total and per book.
+ */
+@Component
+@ConditionalOnProperty(name = "books.read-model", havingValue = "snapshot")
+public class CatalogSnapshotHolder implements MeterBinder {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(CatalogSnapshotHolder.class);
+
+    // larger changes (e.g. an import) reload the whole catalog, which also keeps the IN lists of the queries short
+    private static final int MAX_INCREMENTAL_CHANGES = 1000;
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(5);
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final AuthorMapper authorMapper;
+    private final CatalogVersion catalogVersion;
+    // not a monitor: a rebuild queries the database while holding it, which would pin a virtual thread to its carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile CatalogSnapshot snapshot;
+
+    // written since the last republish, drained by the next one
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean rebuildRequested = new AtomicBoolean();
+    private final AtomicBoolean republishRequested = new AtomicBoolean();
+    private final Executor publisher;
+    private final Duration retryDelay;
+
+    @Autowired
+    public CatalogSnapshotHolder(BookRepository bookRepository, AuthorRepository authorRepository, AuthorMapper authorMapper,
+                                 CatalogVersion catalogVersion) {
+        this(bookRepository, authorRepository, authorMapper, catalogVersion, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "catalog-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        }), RETRY_DELAY);
+    }
+
+    CatalogSnapshotHolder(BookRepository bookRepository, AuthorRepository authorRepository, AuthorMapper authorMapper,
+                          CatalogVersion catalogVersion, Executor publisher, Duration retryDelay) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.authorMapper = authorMapper;
+        this.catalogVersion = catalogVersion;
+        this.publisher = publisher;
+        this.retryDelay = retryDelay;
+        catalogVersion.countOnPublish();
+    }
+
+    /**
+     * @return the current snapshot, null until the first build has finished. Callers should go to the database meanwhile.
+     */
+    CatalogSnapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Builds the snapshot from scratch. Holds the lock for the whole build, so no republish swaps in a snapshot meanwhile.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // authors may have changed as well
+        rebuild(true);
+    }
+
+    private void rebuild(boolean catalogWide) {
+        lock.lock();
+        try {
+            long start = System.nanoTime();
+            List<CatalogSnapshot.Row> rows = rows(bookRepository.findAllSnapshotFields(),
+                    bookRepository.findAllAuthorIds(), bookRepository.findAllGenreNames());
+            Map<Long, AuthorDto> authors = new HashMap<>();
+            authorRepository.findAll().forEach(author -> authors.put(author.getId(), authorMapper.toDto(author)));
+            publish(CatalogSnapshot.of(rows, authors), start, catalogWide);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the written books and asks for a republish, unless one is already asked for and has not started yet.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (event.catalogWide()) {
+            rebuildRequested.set(true);
+        }
+        changed.addAll(event.changed());
+        deleted.addAll(event.deleted());
+        if (republishRequested.compareAndSet(false, true)) {
+            publisher.execute(this::republishQuietly);
+        }
+    }
+
+    /**
+     * Applies every change recorded so far. Changes recorded while it runs ask for the next run.
+     */
+    void republish() {
+        lock.lock();
+        try {
+            republishRequested.set(false);
+            boolean catalogWide = rebuildRequested.getAndSet(false);
+            Set<Long> changedIds = drain(changed);
+            Set<Long> deletedIds = drain(deleted);
+            CatalogSnapshot current = snapshot;
+            if (catalogWide || current != null && changedIds.size() + deletedIds.size() > MAX_INCREMENTAL_CHANGES) {
+                rebuild(catalogWide);
+                return;
+            }
+            if (current == null) {
+                // the first build has not run yet and will read the changes itself
+                return;
+            }
+            if (changedIds.isEmpty() && deletedIds.isEmpty()) {
+                return;
+            }
+
+            long start = System.nanoTime();
+            Set<Long> written = new HashSet<>(changedIds);
+            written.addAll(deletedIds);
+            List<CatalogSnapshot.Row> rows = current.rowsExcept(written);
+            Map<Long, AuthorDto> authors = current.authors();
+            if (!changedIds.isEmpty()) {
+                // a book changed and then deleted is simply not found, one deleted and then added again is
+                List<CatalogSnapshot.Row> reloaded = rows(bookRepository.findSnapshotFields(changedIds),
+                        bookRepository.findAuthorIds(changedIds), bookRepository.findGenreNames(changedIds));
+                Set<Long> authorIds = new HashSet<>();
+                for (CatalogSnapshot.Row row : reloaded) {
+                    for (long authorId : row.authorIds()) {
+                        authorIds.add(authorId);
+                    }
+                }
+                authorRepository.findAllById(authorIds).forEach(author -> authors.put(author.getId(), authorMapper.toDto(author)));
+                rows.addAll(reloaded);
+            }
+            publish(CatalogSnapshot.of(rows, authors), start, false);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (publisher instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    /**
+     * A failed run has drained changes it did not apply, so the snapshot is dropped and reads go to the database
+     * until a rebuild after the retry delay succeeds.
+     */
+    private void republishQuietly() {
+        try {
+            republish();
+        } catch (RuntimeException e) {
+            snapshot = null;
+            // the database is ahead of the tags handed out with the dropped snapshot
+            catalogVersion.published(true);
+            rebuildRequested.set(true);
+            logger.error("Republishing the catalog snapshot failed, reading from the database and rebuilding in {}", retryDelay, e);
+            if (republishRequested.compareAndSet(false, true)) {
+                publisher.execute(this::retryAfterDelay);
+            }
+        }
+    }
+
+    private void retryAfterDelay() {
+        try {
+            Thread.sleep(retryDelay);
+        } catch (InterruptedException e) {
+            // shutting down
+            Thread.currentThread().interrupt();
+            return;
+        }
+        republishQuietly();
+    }
+
+    /**
+     * Takes the IDs out one by one, an ID added meanwhile is either taken or left for the next run.
+     */
+    private static Set<Long> drain(Set<Long> ids) {
+        Set<Long> drained = new HashSet<>();
+        for (Iterator<Long> it = ids.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    /**
+     * Swaps in the snapshot before the catalog version changes, so a reader that gets the new tag also gets the new books.
+     */
+    private void publish(CatalogSnapshot next, long start, boolean catalogWide) {
+        snapshot = next;
+        catalogVersion.published(catalogWide);
+        logger.debug("Published a snapshot of {} books in {} ms, {} bytes ({} per book)", next.size(),
+                (System.nanoTime() - start) / 1_000_000, next.bytes(), bytesPerBook(next));
+    }
+
+    private static List<CatalogSnapshot.Row> rows(List<BookSnapshotFields> books, List<BookAuthorId> authorPairs, List<BookGenreName> genrePairs) {
+        Map<Long, List<Long>> authorIds = new HashMap<>();
+        for (BookAuthorId pair : authorPairs) {
+            authorIds.computeIfAbsent(pair.bookId(), id -> new ArrayList<>()).add(pair.authorId());
+        }
+        Map<Long, List<String>> genreNames = new HashMap<>();
+        for (BookGenreName pair : genrePairs) {
+            genreNames.computeIfAbsent(pair.bookId(), id -> new ArrayList<>()).add(pair.genreName());
+        }
+
+        List<CatalogSnapshot.Row> rows = new ArrayList<>(books.size());
+        for (BookSnapshotFields book : books) {
+            long[] bookAuthors = authorIds.getOrDefault(book.id(), List.of()).stream().mapToLong(Long::longValue).toArray();
+            String[] bookGenres = genreNames.getOrDefault(book.id(), List.of()).toArray(String[]::new);
+            rows.add(new CatalogSnapshot.Row(book.id(), book.name(), CatalogSnapshot.toMinorUnits(book.price()),
+                    book.quantity(), book.version(), bookAuthors, bookGenres));
+        }
+        return rows;
+    }
+
+    private static long bytesPerBook(CatalogSnapshot snapshot) {
+        return snapshot.size() == 0 ? 0 : snapshot.bytes() / snapshot.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("books.snapshot.books", this, holder -> holder.snapshot == null ? 0 : holder.snapshot.size())
+                .description("Books held by the in-memory catalog snapshot")
+                .register(registry);
+        Gauge.builder("books.snapshot.memory", this, holder -> holder.snapshot == null ? 0 : holder.snapshot.bytes())
+                .description("Estimated heap taken by the catalog snapshot")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        Gauge.builder("books.snapshot.memory.per.book", this, holder -> holder.snapshot == null ? 0 : bytesPerBook(holder.snapshot))
+                .description("Estimated heap taken by the catalog snapshot per book")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+    }
+}
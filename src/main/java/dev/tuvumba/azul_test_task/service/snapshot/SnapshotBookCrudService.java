@@ -0,0 +1,224 @@
+package dev.tuvumba.azul_test_task.service.snapshot;
+
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.PaginatedResponse;
+import dev.tuvumba.azul_test_task.domain.dto.StockLevelDto;
+import dev.tuvumba.azul_test_task.repository.specifications.BookSearchCriteria;
+import dev.tuvumba.azul_test_task.service.BookCrudServiceImpl;
+import dev.tuvumba.azul_test_task.service.base.BookCrudService;
+import dev.tuvumba.azul_test_task.service.base.StockLedger;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ *  Answers lookups by ISBN, by price and quantity range, by genre and by author from the {@link CatalogSnapshotHolder},
+ *  without a transaction or a connection. <br>
+ *  Everything else goes to {@link BookCrudServiceImpl}, and so do lookups before the first snapshot is built
+ *  and pages sorted in a way the snapshot does not keep (see {@link CatalogSnapshot#supports(Sort)}).
+ *  The snapshot is republished in the background shortly after the commit of a write, until then readers,
+ *  the writer included, see the previous state. Writes themselves check versions in the database, so nothing is lost.
+ *  Buffered stock changes are added on top, as in BookCrudServiceImpl.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "books.read-model", havingValue = "snapshot")
+public class SnapshotBookCrudService implements BookCrudService {
+
+    private final BookCrudServiceImpl delegate;
+    private final CatalogSnapshotHolder snapshots;
+    private final StockLedger stockLedger;
+    private final CatalogVersion catalogVersion;
+
+    public SnapshotBookCrudService(BookCrudServiceImpl delegate, CatalogSnapshotHolder snapshots, StockLedger stockLedger,
+                                   CatalogVersion catalogVersion) {
+        this.delegate = delegate;
+        this.snapshots = snapshots;
+        this.stockLedger = stockLedger;
+        this.catalogVersion = catalogVersion;
+    }
+
+    @Override
+    public Optional<BookDto> findById(Long id) {
+        CatalogSnapshot snapshot = snapshots.current();
+        if (snapshot == null) {
+            return delegate.findById(id);
+        }
+        int book = snapshot.indexOf(id);
+        return book < 0 ? Optional.empty() : Optional.of(withPendingStock(snapshot.toDto(book)));
+    }
+
+    @Override
+    public Optional<String> findETag(Long id) {
+        CatalogSnapshot snapshot = snapshots.current();
+        if (snapshot == null) {
+            return delegate.findETag(id);
+        }
+        int book = snapshot.indexOf(id);
+        if (book < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(catalogVersion.bookETag(snapshot.version(book), stockLedger.pending(id)));
+    }
+
+    @Override
+    public String eTag(BookDto book) {
+        return delegate.eTag(book);
+    }
+
+    @Override
+    public PaginatedResponse<BookDto> findByPriceBetween(BigDecimal from, BigDecimal to, Pageable pageable, boolean withCount) {
+        return fromSnapshot(pageable, withCount, snapshot -> snapshot.withPriceBetween(from, to))
+                .orElseGet(() -> delegate.findByPriceBetween(from, to, pageable, withCount));
+    }
+
+    @Override
+    public PaginatedResponse<BookDto> findByQuantityBetween(int from, int to, Pageable pageable, boolean withCount) {
+        return fromSnapshot(pageable, withCount, snapshot -> snapshot.withQuantityBetween(from, to))
+                .orElseGet(() -> delegate.findByQuantityBetween(from, to, pageable, withCount));
+    }
+
+    @Override
+    public PaginatedResponse<BookDto> findByGenre(Genre genre, Pageable pageable, boolean withCount) {
+        if (genre.getName() == null) {
+            return delegate.findByGenre(genre, pageable, withCount);
+        }
+        return fromSnapshot(pageable, withCount, snapshot -> snapshot.byGenre(genre.getName()))
+                .orElseGet(() -> delegate.findByGenre(genre, pageable, withCount));
+    }
+
+    @Override
+    public PaginatedResponse<BookDto> findByAuthor(Author author, Pageable pageable, boolean withCount) {
+        if (author.getId() == null) {
+            return delegate.findByAuthor(author, pageable, withCount);
+        }
+        return fromSnapshot(pageable, withCount, snapshot -> snapshot.byAuthor(author.getId()))
+                .orElseGet(() -> delegate.findByAuthor(author, pageable, withCount));
+    }
+
+    /**
+     * A page of the books the query picks out of the snapshot, empty if the snapshot cannot answer it.
+     */
+    private Optional<PaginatedResponse<BookDto>> fromSnapshot(Pageable pageable, boolean withCount, Function<CatalogSnapshot, int[]> query) {
+        CatalogSnapshot snapshot = snapshots.current();
+        if (snapshot == null || pageable.isUnpaged() || !CatalogSnapshot.supports(pageable.getSort())) {
+            return Optional.empty();
+        }
+
+        int[] matches = query.apply(snapshot);
+        int[] page = snapshot.page(matches, pageable);
+        List<BookDto> books = new ArrayList<>(page.length);
+        for (int book : page) {
+            books.add(withPendingStock(snapshot.toDto(book)));
+        }
+        if (withCount) {
+            return Optional.of(new PaginatedResponse<>(new PageImpl<>(books, pageable, matches.length)));
+        }
+        boolean hasNext = pageable.getOffset() + page.length < matches.length;
+        return Optional.of(PaginatedResponse.ofSlice(books, pageable.getPageNumber(), pageable.getPageSize(), hasNext));
+    }
+
+    /**
+     * Books of the snapshot are mapped anew on every read, so the stock can be changed in place.
+     */
+    private BookDto withPendingStock(BookDto book) {
+        book.setQuantity(book.getQuantity() + (int) stockLedger.pending(book.getId()));
+        return book;
+    }
+
+    // served by the database
+
+    @Override
+    public Optional<BookDto> save(BookDto book) {
+        return delegate.save(book);
+    }
+
+    @Override
+    public BookDto updateBook(Long id, Map<String, Object> updates, Long expectedVersion) {
+        return delegate.updateBook(id, updates, expectedVersion);
+    }
+
+    @Override
+    public void delete(Long id) {
+        delegate.delete(id);
+    }
+
+    @Override
+    public List<Long> deleteAll(Collection<Long> ids) {
+        return delegate.deleteAll(ids);
+    }
+
+    @Override
+    public StockLevelDto reserve(Long id, int amount) {
+        return delegate.reserve(id, amount);
+    }
+
+    @Override
+    public StockLevelDto release(Long id, int amount) {
+        return delegate.release(id, amount);
+    }
+
+    @Override
+    public List<BookDto> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public PaginatedResponse<BookDto> findAll(Pageable pageable, boolean withCount) {
+        return delegate.findAll(pageable, withCount);
+    }
+
+    @Override
+    public PaginatedResponse<BookDto> findAll(String cursor, int size, Sort sort) {
+        return delegate.findAll(cursor, size, sort);
+    }
+
+    @Override
+    public PaginatedResponse<BookDto> findByPriceBetween(BigDecimal from, BigDecimal to, String cursor, int size, Sort sort) {
+        return delegate.findByPriceBetween(from, to, cursor, size, sort);
+    }
+
+    @Override
+    public PaginatedResponse<BookDto> findByQuantityBetween(int from, int to, String cursor, int size, Sort sort) {
+        return delegate.findByQuantityBetween(from, to, cursor, size, sort);
+    }
+
+    @Override
+    public List<BookDto> findByTitle(String title) {
+        return delegate.findByTitle(title);
+    }
+
+    @Override
+    public PaginatedResponse<BookDto> findByTitleContaining(String title, Pageable pageable, boolean withCount) {
+        return delegate.findByTitleContaining(title, pageable, withCount);
+    }
+
+    @Override
+    public PaginatedResponse<BookDto> findByAuthorNameContaining(String authorName, Pageable pageable, boolean withCount) {
+        return delegate.findByAuthorNameContaining(authorName, pageable, withCount);
+    }
+
+    @Override
+    public PaginatedResponse<BookDto> search(BookSearchCriteria criteria, Pageable pageable, boolean withCount) {
+        return delegate.search(criteria, pageable, withCount);
+    }
+
+    @Override
+    public PaginatedResponse<BookDto> search(BookSearchCriteria criteria, String cursor, int size, Sort sort) {
+        return delegate.search(criteria, cursor, size, sort);
+    }
+}
@@ -0,0 +1,53 @@
+package dev.tuvumba.azul_test_task.service.stock;
+
+import dev.tuvumba.azul_test_task.config.exceptions.InsufficientStockException;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.service.base.StockLedger;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ *  Default ledger, every change is one conditional UPDATE of the book row. <br>
+ *  The row is locked only for that statement, so concurrent changes of the same book queue on the row instead of overwriting each other.
+ */
+@Component
+@ConditionalOnProperty(name = "books.stock.mode", havingValue = "direct", matchIfMissing = true)
+public class DirectStockLedger implements StockLedger {
+
+    private final BookRepository bookRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DirectStockLedger(BookRepository bookRepository, ApplicationEventPublisher eventPublisher) {
+        this.bookRepository = bookRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    @Transactional
+    public int reserve(Long id, int amount) {
+        Optional<Integer> quantity = bookRepository.reserveStock(id, amount);
+        if (quantity.isEmpty()) {
+            if (!bookRepository.existsById(id)) {
+                throw new EntityNotFoundException("Book not found");
+            }
+            throw new InsufficientStockException("Insufficient stock: cannot reserve " + amount + " of book " + id + ".");
+        }
+        eventPublisher.publishEvent(BookChangedEvent.changed(id));
+        return quantity.get();
+    }
+
+    @Override
+    @Transactional
+    public int release(Long id, int amount) {
+        Integer quantity = bookRepository.releaseStock(id, amount)
+                .orElseThrow(() -> new EntityNotFoundException("Book not found"));
+        eventPublisher.publishEvent(BookChangedEvent.changed(id));
+        return quantity;
+    }
+}
@@ -0,0 +1,293 @@
+package dev.tuvumba.azul_test_task.service.stock;
+
+import dev.tuvumba.azul_test_task.config.exceptions.InsufficientStockException;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.service.base.StockLedger;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ *  Opt-in ledger for bursts of stock changes on a few books (e.g. a flash sale). <br>
+ *  Changes are summed per book in memory and written as one batched UPDATE every flush interval, or sooner once enough of them are buffered,
+ *  so a thousand reservations of a book cost one row update instead of a thousand transactions.
+ *  Reservations are checked against an in-memory stock level, seeded from the database on the first change of a book
+ *  and again after any other write to it, see {@link BookChangedEvent}. <br>
+ *  Flushes run one at a time and a batch is committed before the next one is taken, so the database always holds
+ *  the changes of each book up to some point and nothing is applied twice. <br>
+ *  Trade-offs: changes buffered at a crash are lost (a clean shutdown flushes them),
+ *  and the in-memory stock level assumes a single instance of the application changes stock.
+ */
+@Component
+@ConditionalOnProperty(name = "books.stock.mode", havingValue = "write-behind")
+public class WriteBehindStockLedger implements StockLedger {
+
+    private static final org.slf4j.Logger logger = LoggerFactory.getLogger(WriteBehindStockLedger.class);
+
+    static final String APPLY_DELTA = "UPDATE book SET quantity = quantity + ?, version = version + 1 WHERE id = ?";
+
+    private static final class Entry {
+        // stock left for reservations: the stored quantity with every buffered change applied
+        final AtomicInteger available;
+        // buffered change, striped so concurrent buyers of the same book do not contend on one counter
+        final LongAdder pending = new LongAdder();
+        // taken out of pending by the running flush and not committed yet
+        volatile long inFlight;
+        // the stored quantity was written by someone else, available has to be seeded again
+        volatile boolean stale;
+
+        Entry(int available) {
+            this.available = new AtomicInteger(available);
+        }
+    }
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder buffered = new LongAdder();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // not a monitor: seeding queries the database while holding it, which would pin a virtual thread to its carrier
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final BookRepository bookRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CatalogVersion catalogVersion;
+    private final int maxDeltas;
+    private final ScheduledExecutorService flusher;
+
+    public WriteBehindStockLedger(BookRepository bookRepository, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                  ApplicationEventPublisher eventPublisher, CatalogVersion catalogVersion,
+                                  @Value("${books.stock.write-behind.flush-interval:100ms}") Duration flushInterval,
+                                  @Value("${books.stock.write-behind.max-deltas:1000}") int maxDeltas) {
+        this.bookRepository = bookRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.catalogVersion = catalogVersion;
+        this.maxDeltas = maxDeltas;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int reserve(Long id, int amount) {
+        Entry entry = entry(id);
+        // buffered first: a concurrent seed then counts the reservation twice, which never oversells
+        entry.pending.add(-amount);
+        while (true) {
+            int available = entry.available.get();
+            if (available < amount) {
+                entry.pending.add(amount);
+                throw new InsufficientStockException("Insufficient stock: cannot reserve " + amount + " of book " + id + ".");
+            }
+            if (entry.available.compareAndSet(available, available - amount)) {
+                onBuffered();
+                return available - amount;
+            }
+        }
+    }
+
+    @Override
+    public int release(Long id, int amount) {
+        Entry entry = entry(id);
+        entry.pending.add(amount);
+        int available = entry.available.addAndGet(amount);
+        onBuffered();
+        return available;
+    }
+
+    @Override
+    public long pending(Long id) {
+        Entry entry = entries.get(id);
+        return entry == null ? 0 : entry.pending.sum() + entry.inFlight;
+    }
+
+    /**
+     * Writes everything buffered so far as one batch in one transaction.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushRequested.set(false);
+            buffered.reset();
+
+            // ascending IDs, so concurrent multi-row writers always lock rows in the same order
+            Map<Long, Long> batch = new TreeMap<>();
+            entries.forEach((id, entry) -> {
+                long delta = entry.pending.sum();
+                if (delta != 0) {
+                    entry.inFlight = delta;
+                    entry.pending.add(-delta);
+                    batch.put(id, delta);
+                }
+            });
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            List<Long> written = new ArrayList<>(batch.keySet());
+            try {
+                write(batch);
+            } catch (DataIntegrityViolationException e) {
+                logger.warn("Batch of {} stock changes violates a constraint, writing them one by one", batch.size());
+                written = writeOneByOne(batch);
+            } catch (DataAccessException e) {
+                logger.error("Writing {} stock changes failed, keeping them for the next flush: {}", batch.size(), e.getMessage());
+                batch.keySet().forEach(this::requeue);
+                return;
+            }
+
+            batch.keySet().forEach(id -> entries.get(id).inFlight = 0);
+            logger.debug("Flushed stock changes of {} books", written.size());
+            eventPublisher.publishEvent(BookChangedEvent.changed(written));
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        if (flushLock.isHeldByCurrentThread()) {
+            // published by our own flush, the in-memory levels already include it
+            return;
+        }
+        if (event.catalogWide()) {
+            entries.values().forEach(entry -> entry.stale = true);
+            return;
+        }
+        event.changed().forEach(id -> {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                entry.stale = true;
+            }
+        });
+        if (event.deleted().isEmpty()) {
+            return;
+        }
+        // a running flush still looks up the entries of its batch
+        flushLock.lock();
+        try {
+            event.deleted().forEach(entries::remove);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+    }
+
+    private Entry entry(Long id) {
+        Entry entry = entries.get(id);
+        return entry == null || entry.stale ? seed(id) : entry;
+    }
+
+    /**
+     * Holds the flush lock, so no batch is half-written while the stored quantity is read.
+     */
+    private Entry seed(Long id) {
+        flushLock.lock();
+        try {
+            Entry entry = entries.get(id);
+            if (entry != null && !entry.stale) {
+                return entry;
+            }
+            int stored = bookRepository.findQuantityById(id)
+                    .orElseThrow(() -> new EntityNotFoundException("Book not found"));
+            if (entry == null) {
+                entry = new Entry(stored);
+                entries.put(id, entry);
+            } else {
+                entry.stale = false;
+                entry.available.set((int) (stored + entry.pending.sum()));
+            }
+            return entry;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void onBuffered() {
+        // lists show buffered changes, so their tag has to change right away and not with the flush
+        catalogVersion.bump();
+        buffered.increment();
+        if (buffered.sum() >= maxDeltas && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.error("Flushing stock changes failed", e);
+        }
+    }
+
+    private void write(Map<Long, Long> batch) {
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        batch.forEach((id, delta) -> rows.add(new Object[]{delta, id}));
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(APPLY_DELTA, rows));
+    }
+
+    /**
+     * A change that breaks a constraint (stock below zero after someone else lowered it) is dropped and the level is seeded again,
+     * the others are written.
+     */
+    private List<Long> writeOneByOne(Map<Long, Long> batch) {
+        List<Long> written = new ArrayList<>();
+        batch.forEach((id, delta) -> {
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(APPLY_DELTA, delta, id));
+                written.add(id);
+            } catch (DataIntegrityViolationException e) {
+                logger.error("Dropping stock change {} of book {}: {}", delta, id, e.getMessage());
+                entries.get(id).stale = true;
+            } catch (DataAccessException e) {
+                logger.error("Writing stock change of book {} failed, keeping it for the next flush: {}", id, e.getMessage());
+                requeue(id);
+            }
+        });
+        return written;
+    }
+
+    private void requeue(Long id) {
+        Entry entry = entries.get(id);
+        entry.pending.add(entry.inFlight);
+        entry.inFlight = 0;
+    }
+}
@@ -29,7 +29,8 @@ CREATE TABLE book (
                       id BIGINT PRIMARY KEY,
                       name VARCHAR(255) NOT NULL,
                       price DECIMAL(10,2) NOT NULL CHECK (price >= 0),
-                      quantity INT NOT NULL CHECK (quantity >= 0)
+                      quantity INT NOT NULL CHECK (quantity >= 0),
+                      version BIGINT NOT NULL DEFAULT 0
 );
 
 CREATE TABLE book_genre (
@@ -50,7 +51,9 @@ CREATE TABLE book_author (
 
 CREATE INDEX idx_book_author_author_id ON book_author(author_id);
 CREATE INDEX idx_book_genre_genre_name ON book_genre(genre_name);
-CREATE INDEX idx_book_quantity ON book(quantity);
+-- (sort key, id) pairs back keyset paging, see ScrollCursor
+CREATE INDEX idx_book_quantity ON book(quantity, id);
+CREATE INDEX idx_book_price ON book(price, id);
 
 
 INSERT INTO users (username, first_name, last_name, email, password, role)
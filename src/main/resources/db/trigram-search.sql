@@ -0,0 +1,5 @@
+-- Trigram indexes for books.search.mode=trigram, see TrigramBookSearch.
+-- They serve LIKE '%...%' on the lower-cased columns and the word_similarity() ranking.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_book_name_trgm ON book USING gin (lower(name) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_author_display_name_trgm ON author USING gin (lower(display_name) gin_trgm_ops);
@@ -0,0 +1,197 @@
+package dev.tuvumba.azul_test_task.config.cache;
+
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.PaginatedResponse;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import dev.tuvumba.azul_test_task.repository.AuthorRepository;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.repository.GenreRepository;
+import dev.tuvumba.azul_test_task.service.BookCrudServiceImpl;
+import dev.tuvumba.azul_test_task.service.cache.BookCache;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.cache.GenreRegistry;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import dev.tuvumba.azul_test_task.service.search.LikeBookSearch;
+import dev.tuvumba.azul_test_task.service.stock.DirectStockLedger;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *  Loads books, authors and genres twice against an embedded database and counts the statements of the second time. <br>
+ *  Not run in a test transaction: the cache takes entries only from committed state.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({SecondLevelCacheConfig.class, BookCrudServiceImpl.class, BookMapper.class, AuthorMapper.class, GenreMapper.class,
+        BookCache.class, CatalogVersion.class, GenreRegistry.class, LikeBookSearch.class, DirectStockLedger.class})
+class SecondLevelCacheConfigTest {
+
+    private static final int BOOKS = 20;
+    // fresh IDs for every test: a deleted book leaves a lock in the cache that keeps a new book with its ID out of it
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private long firstId;
+
+    @Autowired
+    private BookCrudServiceImpl bookService;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private AuthorRepository authorRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        firstId = NEXT_ID.get() + 1;
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Genre mystery = new Genre("Mystery", new ArrayList<>());
+            Genre thriller = new Genre("Thriller", new ArrayList<>());
+            entityManager.persist(mystery);
+            entityManager.persist(thriller);
+            for (int i = 1; i <= BOOKS; i++) {
+                Author author = new Author();
+                author.setDisplayName("Author " + i);
+                entityManager.persist(author);
+
+                Book book = new Book();
+                book.setId(NEXT_ID.incrementAndGet());
+                book.setName("Book " + i);
+                book.setPrice(BigDecimal.TEN);
+                book.setQuantity(1);
+                book.setAuthors(List.of(author));
+                book.setGenres(List.of(mystery, thriller));
+                entityManager.persist(book);
+            }
+        });
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            bookRepository.deleteAll();
+            authorRepository.deleteAll();
+            genreRepository.deleteAll();
+        });
+        entityManagerFactory.getCache().evictAll();
+    }
+
+    @Test
+    void shouldMapCachedPageWithPageQueriesOnly() {
+        PaginatedResponse<BookDto> first = bookService.findAll(PageRequest.of(0, BOOKS / 2, Sort.by("id")), true);
+        long firstStatements = statementsSinceClear();
+
+        PaginatedResponse<BookDto> second = bookService.findAll(PageRequest.of(0, BOOKS / 2, Sort.by("id")), true);
+
+        // page and count query, authors and genres come from the cache
+        assertThat(firstStatements).isEqualTo(4);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isPositive();
+        assertThat(statementsSinceClear()).isEqualTo(2);
+        assertThat(second.getList()).usingRecursiveComparison().isEqualTo(first.getList());
+        assertThat(second.getList()).allSatisfy(book -> {
+            assertThat(book.getAuthors()).hasSize(1);
+            assertThat(book.getGenres()).hasSize(2);
+        });
+    }
+
+    @Test
+    void shouldLoadAssociationsOfBookWithoutQueries() {
+        bookService.findAll(PageRequest.of(0, BOOKS, Sort.by("id")), true);
+        statistics.clear();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            Book book = bookRepository.findById(firstId + 2).orElseThrow();
+            assertThat(book.getAuthors()).extracting(Author::getDisplayName).containsExactly("Author 3");
+            assertThat(book.getGenres()).hasSize(2);
+        });
+
+        // the book row only
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldServeGenreListFromQueryCacheUntilGenresChange() {
+        assertThat(genreRepository.findAll()).hasSize(2);
+        statistics.clear();
+
+        assertThat(genreRepository.findAll()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+
+        genreRepository.save(new Genre("Horror", new ArrayList<>()));
+        assertThat(genreRepository.findAll()).extracting(Genre::getName).contains("Horror");
+    }
+
+    @Test
+    void shouldLoadBookAfterItsAuthorIsDeleted() {
+        long bookId = firstId + 4;
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        Long authorId = transaction.execute(status -> bookRepository.findById(bookId).orElseThrow().getAuthors().get(0).getId());
+
+        // what AuthorController does, the join rows go past Hibernate as PostgreSQL's ON DELETE CASCADE removes them
+        transaction.executeWithoutResult(status -> {
+            jdbcTemplate.update("DELETE FROM book_author WHERE author_id = ?", authorId);
+            authorRepository.deleteById(authorId);
+        });
+        eventPublisher.publishEvent(BookChangedEvent.everything());
+
+        transaction.executeWithoutResult(status ->
+                assertThat(bookRepository.findById(bookId).orElseThrow().getAuthors()).isEmpty());
+    }
+
+    private long statementsSinceClear() {
+        long statements = statistics.getPrepareStatementCount();
+        statistics.clear();
+        return statements;
+    }
+}
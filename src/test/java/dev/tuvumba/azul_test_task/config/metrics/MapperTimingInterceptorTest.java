@@ -0,0 +1,59 @@
+package dev.tuvumba.azul_test_task.config.metrics;
+
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.support.AopUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MapperTimingInterceptorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final Advisor advisor = MapperTimingInterceptor.advisor(() -> registry);
+
+    @Test
+    void shouldTimeOnlyPagesOfBooks() {
+        BookMapper bookMapper = proxy(new BookMapper(new AuthorMapper(), new GenreMapper()));
+
+        bookMapper.toDtoList(List.of(book(1L), book(2L)));
+        bookMapper.toDto(book(3L));
+
+        assertThat(registry.get("mapper.invocations").tags("mapper", "BookMapper", "method", "toDtoList").timer().count()).isEqualTo(1);
+        assertThat(registry.find("mapper.invocations").tag("method", "toDto").timer()).isNull();
+    }
+
+    @Test
+    void shouldLeaveAuthorAndGenreMappersUnproxied() {
+        assertThat(AopUtils.canApply(advisor, BookMapper.class)).isTrue();
+        assertThat(AopUtils.canApply(advisor, AuthorMapper.class)).isFalse();
+        assertThat(AopUtils.canApply(advisor, GenreMapper.class)).isFalse();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(T target) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvisor(advisor);
+        return (T) factory.getProxy();
+    }
+
+    private static Book book(long id) {
+        Book book = new Book(id, List.of(new Author(1L, "Agatha Christie", null, new ArrayList<>())),
+                List.of(new Genre("Mystery", new ArrayList<>())));
+        book.setName("Book " + id);
+        book.setPrice(BigDecimal.TEN);
+        return book;
+    }
+}
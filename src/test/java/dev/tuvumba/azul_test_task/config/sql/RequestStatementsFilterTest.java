@@ -0,0 +1,110 @@
+package dev.tuvumba.azul_test_task.config.sql;
+
+import dev.tuvumba.azul_test_task.controllers.BookController;
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import dev.tuvumba.azul_test_task.service.BookCrudServiceImpl;
+import dev.tuvumba.azul_test_task.service.cache.BookCache;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.cache.GenreRegistry;
+import dev.tuvumba.azul_test_task.service.search.LikeBookSearch;
+import dev.tuvumba.azul_test_task.service.stock.DirectStockLedger;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ *  Counts the statements of requests against an embedded database.
+ */
+@DataJpaTest(properties = "spring.sql.init.mode=never")
+@Import({SqlStatementsConfig.class, BookCrudServiceImpl.class, BookMapper.class, AuthorMapper.class, GenreMapper.class,
+        BookCache.class, CatalogVersion.class, GenreRegistry.class, LikeBookSearch.class, DirectStockLedger.class})
+class RequestStatementsFilterTest {
+
+    private static final int BOOKS = 20;
+
+    @Autowired
+    private BookCrudServiceImpl bookService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        Genre mystery = new Genre("Mystery", new ArrayList<>());
+        entityManager.persist(mystery);
+        for (long i = 1; i <= BOOKS; i++) {
+            Author author = new Author();
+            author.setDisplayName("Author " + i);
+            entityManager.persist(author);
+
+            Book book = new Book();
+            book.setId(i);
+            book.setName("Book " + i);
+            book.setPrice(BigDecimal.TEN);
+            book.setQuantity(1);
+            book.setAuthors(List.of(author));
+            book.setGenres(List.of(mystery));
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        BookController controller = new BookController(bookService, null, null, null, null, null, null, null, new CatalogVersion());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).addFilters(StatementBudget.filter()).build();
+    }
+
+    @Test
+    void shouldKeepPageOfBooksWithinBudget() throws Exception {
+        mockMvc.perform(get("/books").param("size", String.valueOf(BOOKS)))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(RequestStatementsFilter.SERVER_TIMING_HEADER))
+                .andExpect(StatementBudget.atMost(4))
+                .andExpect(StatementBudget.repeatsAtMost(1));
+    }
+
+    @Test
+    void shouldReportStatementsOfBodilessResponse() throws Exception {
+        mockMvc.perform(get("/books/{id}", 404))
+                .andExpect(status().isNotFound())
+                .andExpect(StatementBudget.withinDefault());
+    }
+
+    @Test
+    void shouldReportStatementRepeatedPerItem() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        StatementBudget.filter().doFilter(new MockHttpServletRequest("GET", "/books"), response, (request, ignored) -> {
+            // a lazy collection touched in a loop: one query for the authors of every book
+            for (long id = 1; id <= BOOKS; id++) {
+                entityManager.find(Book.class, id).getAuthors().size();
+            }
+        });
+
+        assertThat(response.getHeader(RequestStatementsFilter.STATEMENTS_HEADER)).isEqualTo(String.valueOf(2 * BOOKS));
+        assertThat(response.getHeader(RequestStatementsFilter.REPEATS_HEADER)).isEqualTo(String.valueOf(BOOKS));
+        assertThat(RequestStatements.current()).isNull();
+    }
+}
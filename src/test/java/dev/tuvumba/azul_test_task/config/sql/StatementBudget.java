@@ -0,0 +1,51 @@
+package dev.tuvumba.azul_test_task.config.sql;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *  MockMvc checks of the SQL statements a request issued, as reported by {@link RequestStatementsFilter}. <br>
+ *  The MockMvc under test needs the filter ({@link #filter()}) and a context with {@link SqlStatementsConfig}.
+ *  The default budget can be changed for a whole run with -Dbooks.sql.statement-budget=N.
+ */
+public final class StatementBudget {
+
+    public static final int DEFAULT = Integer.getInteger("books.sql.statement-budget", 10);
+
+    private StatementBudget() {
+    }
+
+    public static RequestStatementsFilter filter() {
+        return new RequestStatementsFilter(Integer.MAX_VALUE);
+    }
+
+    public static ResultMatcher withinDefault() {
+        return atMost(DEFAULT);
+    }
+
+    public static ResultMatcher atMost(int statements) {
+        return result -> assertThat(header(result.getResponse().getHeader(RequestStatementsFilter.STATEMENTS_HEADER)))
+                .as("SQL statements of %s", target(result.getRequest()))
+                .isLessThanOrEqualTo(statements);
+    }
+
+    /**
+     * Fails a request that issued the same statement more than the given number of times, a probable N+1.
+     */
+    public static ResultMatcher repeatsAtMost(int times) {
+        return result -> assertThat(header(result.getResponse().getHeader(RequestStatementsFilter.REPEATS_HEADER)))
+                .as("repeats of one SQL statement in %s", target(result.getRequest()))
+                .isLessThanOrEqualTo(times);
+    }
+
+    private static int header(String value) {
+        assertThat(value).as("statements are not recorded, is the RequestStatementsFilter added to MockMvc?").isNotNull();
+        return Integer.parseInt(value);
+    }
+
+    private static String target(MockHttpServletRequest request) {
+        return request.getMethod() + " " + request.getRequestURI();
+    }
+}
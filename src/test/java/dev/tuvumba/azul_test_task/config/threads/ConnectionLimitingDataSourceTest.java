@@ -0,0 +1,44 @@
+package dev.tuvumba.azul_test_task.config.threads;
+
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class ConnectionLimitingDataSourceTest {
+
+    @Test
+    void shouldHandOutNoMoreConnectionsThanPermits() throws SQLException {
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenAnswer(invocation -> mock(Connection.class));
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 1, Duration.ofMillis(10));
+
+        Connection first = dataSource.getConnection();
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+
+        first.close();
+        first.close();
+        Connection second = dataSource.getConnection();
+        // the second close of the first connection must not have released another permit
+        assertThatThrownBy(dataSource::getConnection).isInstanceOf(SQLTransientConnectionException.class);
+        second.close();
+        verify(target, times(2)).getConnection();
+    }
+
+    @Test
+    void shouldGiveThePermitBackIfThePoolFails() throws SQLException {
+        DataSource target = mock(DataSource.class);
+        when(target.getConnection()).thenThrow(new SQLException("pool is down")).thenAnswer(invocation -> mock(Connection.class));
+        ConnectionLimitingDataSource dataSource = new ConnectionLimitingDataSource(target, 1, Duration.ofMillis(10));
+
+        assertThatThrownBy(dataSource::getConnection).hasMessage("pool is down");
+        assertThat(dataSource.getConnection()).isNotNull();
+    }
+}
@@ -0,0 +1,96 @@
+package dev.tuvumba.azul_test_task.controllers;
+
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.service.base.BookCrudService;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class BookControllerConditionalGetTest {
+
+    @Mock
+    private BookCrudService bookCrudService;
+
+    private final CatalogVersion catalogVersion = new CatalogVersion();
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        BookController controller = new BookController(bookCrudService, null, null, null, null, null, null, null, catalogVersion);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @Test
+    void shouldAnswerUnchangedBookWithoutLoadingIt() throws Exception {
+        when(bookCrudService.findETag(1L)).thenReturn(Optional.of("4"));
+
+        mockMvc.perform(get("/books/1").header(HttpHeaders.IF_NONE_MATCH, "\"4\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+        verify(bookCrudService, never()).findById(any());
+
+        BookDto book = new BookDto();
+        book.setId(1L);
+        when(bookCrudService.findById(1L)).thenReturn(Optional.of(book));
+        when(bookCrudService.findETag(1L)).thenReturn(Optional.of("5"));
+
+        mockMvc.perform(get("/books/1").header(HttpHeaders.IF_NONE_MATCH, "\"4\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""));
+    }
+
+    @Test
+    void shouldTagPatchedBookLikeFollowingGet() throws Exception {
+        BookDto book = new BookDto();
+        book.setId(1L);
+        book.setVersion(5L);
+        when(bookCrudService.updateBook(1L, Map.of("price", 30), 4L)).thenReturn(book);
+        when(bookCrudService.eTag(book)).thenReturn(catalogVersion.bookETag(5, 0));
+        when(bookCrudService.findETag(1L)).thenReturn(Optional.of(catalogVersion.bookETag(5, 0)));
+
+        String eTag = mockMvc.perform(patch("/books/1").header(HttpHeaders.IF_MATCH, "\"4\"")
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"price\": 30}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/books/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        verify(bookCrudService, never()).findById(any());
+    }
+
+    @Test
+    void shouldAnswerUnchangedListUntilCatalogChanges() throws Exception {
+        String eTag = mockMvc.perform(get("/books"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/books").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        verify(bookCrudService, times(1)).findAll(any(), anyBoolean());
+
+        catalogVersion.bump();
+        mockMvc.perform(get("/books").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isOk());
+        verify(bookCrudService, times(2)).findAll(any(), anyBoolean());
+    }
+}
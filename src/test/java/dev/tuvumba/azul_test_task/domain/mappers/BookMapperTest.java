@@ -0,0 +1,45 @@
+package dev.tuvumba.azul_test_task.domain.mappers;
+
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.dto.AuthorDto;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.GenreDto;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookMapperTest {
+
+    private final BookMapper bookMapper = new BookMapper(new AuthorMapper(), new GenreMapper());
+
+    @Test
+    void shouldMapBookBackAndForth() {
+        BookDto bookDto = new BookDto(List.of(new AuthorDto(1L, "Robert C. Martin", "Software engineer.")), List.of(new GenreDto("Programming")));
+        bookDto.setId(9780132350884L);
+        bookDto.setName("Clean Code");
+        bookDto.setPrice(new BigDecimal("29.99"));
+        bookDto.setQuantity(10);
+        bookDto.setVersion(2L);
+
+        Book book = bookMapper.toEntity(bookDto);
+
+        assertThat(book.getAuthors().get(0).getDisplayName()).isEqualTo("Robert C. Martin");
+        assertThat(book.getGenres().get(0).getName()).isEqualTo("Programming");
+        assertThat(bookMapper.toDto(book)).isEqualTo(bookDto);
+    }
+
+    @Test
+    void shouldKeepEntityCollectionsWhenDtoHasNone() {
+        BookDto bookDto = new BookDto(null, null);
+        bookDto.setId(1L);
+        bookDto.setPrice(BigDecimal.ONE);
+
+        Book book = bookMapper.toEntity(bookDto);
+
+        assertThat(book.getAuthors()).isEmpty();
+        assertThat(book.getGenres()).isEmpty();
+    }
+}
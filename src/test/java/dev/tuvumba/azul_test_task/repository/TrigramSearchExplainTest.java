@@ -0,0 +1,99 @@
+package dev.tuvumba.azul_test_task.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *  Proves that the trigram search queries of {@link BookRepository} are answered from the indexes of db/trigram-search.sql. <br>
+ *  Needs the PostgreSQL configured in application.properties and is skipped without it.
+ *  Works in a throwaway schema inside a transaction that is rolled back, sequential scans are disabled
+ *  so the plan shows whether an index can serve the query at all.
+ */
+class TrigramSearchExplainTest {
+
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws IOException, SQLException {
+        Properties properties = new Properties();
+        try (InputStream input = new ClassPathResource("application.properties").getInputStream()) {
+            properties.load(input);
+        }
+        try {
+            connection = DriverManager.getConnection(properties.getProperty("spring.datasource.url"),
+                    properties.getProperty("spring.datasource.username"), properties.getProperty("spring.datasource.password"));
+        } catch (SQLException e) {
+            Assumptions.abort("PostgreSQL is not available: " + e.getMessage());
+        }
+        connection.setAutoCommit(false);
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SCHEMA trigram_explain_test");
+            statement.execute("SET LOCAL search_path = trigram_explain_test, public");
+            statement.execute("CREATE TABLE book (id BIGINT PRIMARY KEY, name VARCHAR(255) NOT NULL, price DECIMAL(10,2) NOT NULL, quantity INT NOT NULL)");
+            statement.execute("CREATE TABLE author (id SERIAL PRIMARY KEY, display_name VARCHAR(255) NOT NULL, description VARCHAR(255))");
+            statement.execute("CREATE TABLE book_author (book_id BIGINT NOT NULL REFERENCES book(id), author_id BIGINT NOT NULL REFERENCES author(id), PRIMARY KEY (book_id, author_id))");
+            statement.execute("INSERT INTO book SELECT i, 'Book number ' || i, 10, 1 FROM generate_series(1, 5000) i");
+            statement.execute("INSERT INTO author (display_name) SELECT 'Author number ' || i FROM generate_series(1, 5000) i");
+            statement.execute("INSERT INTO book_author SELECT i, i FROM generate_series(1, 5000) i");
+        }
+        ScriptUtils.executeSqlScript(connection, new ClassPathResource("db/trigram-search.sql"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+            statement.execute("SET LOCAL enable_seqscan = off");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (connection != null) {
+            connection.rollback();
+            connection.close();
+        }
+    }
+
+    @Test
+    void titleSearchShouldUseTrigramIndex() throws SQLException {
+        assertThat(explain(BookRepository.TRIGRAM_TITLE_SEARCH, "number 42")).contains("idx_book_name_trgm");
+        assertThat(explain(BookRepository.TRIGRAM_TITLE_COUNT, "number 42")).contains("idx_book_name_trgm");
+    }
+
+    @Test
+    void authorSearchShouldUseTrigramIndex() throws SQLException {
+        assertThat(explain(BookRepository.TRIGRAM_AUTHOR_SEARCH, "number 42")).contains("idx_author_display_name_trgm");
+        assertThat(explain(BookRepository.TRIGRAM_AUTHOR_COUNT, "number 42")).contains("idx_author_display_name_trgm");
+    }
+
+    private String explain(String query, String value) throws SQLException {
+        String jdbcQuery = query.replace(":query", "?");
+        try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + jdbcQuery)) {
+            int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setString(i, value);
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    plan.append(resultSet.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
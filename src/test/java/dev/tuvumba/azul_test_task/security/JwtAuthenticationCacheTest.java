@@ -0,0 +1,76 @@
+package dev.tuvumba.azul_test_task.security;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class JwtAuthenticationCacheTest {
+
+    private static final String SECRET = "Q2hhbmdlIG1lISBUaGlzIGlzIGEgYmVuY2htYXJrIGtleSB0aGF0IGlzIGxvbmcgZW5vdWdoIGZvciBIUzUxMiBzaWduaW5nLCBubyBtb3JlLg==";
+
+    private final JwtUtils jwtUtils = spy(new JwtUtils(SECRET));
+    private final JwtAuthenticationCache cache = new JwtAuthenticationCache(jwtUtils, 100, Duration.ofMinutes(5));
+
+    @Test
+    void shouldParseRepeatedTokenOnlyOnce() {
+        String token = jwtUtils.generateToken("admin", List.of("ADMIN"));
+
+        UsernamePasswordAuthenticationToken first = cache.authenticate(token).orElseThrow();
+        UsernamePasswordAuthenticationToken second = cache.authenticate(token).orElseThrow();
+
+        assertThat(second.getName()).isEqualTo("admin");
+        assertThat(second.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_ADMIN");
+        assertThat(second).isNotSameAs(first);
+        verify(jwtUtils, times(1)).parseClaims(anyString());
+    }
+
+    @Test
+    void shouldNotAuthenticateExpiredOrForgedTokens() {
+        String expired = Jwts.builder()
+                .subject("admin")
+                .claim("roles", List.of("ADMIN"))
+                .expiration(new Date(System.currentTimeMillis() - 1000))
+                .signWith(jwtUtils.getSecretKey())
+                .compact();
+        // signed with another key, tampering with the last character is not reliable as base64 ignores its low bits
+        String forged = Jwts.builder()
+                .subject("admin")
+                .claim("roles", List.of("ADMIN"))
+                .expiration(new Date(System.currentTimeMillis() + 60_000))
+                .signWith(Keys.hmacShaKeyFor(new byte[64]))
+                .compact();
+
+        assertThat(cache.authenticate(expired)).isEmpty();
+        assertThat(cache.authenticate(forged)).isEmpty();
+        assertThat(cache.authenticate(forged)).isEmpty();
+        verify(jwtUtils, times(3)).parseClaims(anyString());
+    }
+
+    @Test
+    void shouldVerifyTokenWithoutExpirationAgainAfterBoundedTime() {
+        String token = Jwts.builder()
+                .subject("admin")
+                .claim("roles", List.of("ADMIN"))
+                .signWith(jwtUtils.getSecretKey())
+                .compact();
+
+        assertThat(cache.authenticate(token)).isPresent();
+        assertThat(cache.authenticate(token)).isPresent();
+        verify(jwtUtils, times(1)).parseClaims(anyString());
+
+        JwtAuthenticationCache uncached = new JwtAuthenticationCache(jwtUtils, 100, Duration.ZERO);
+        assertThat(uncached.authenticate(token)).isPresent();
+        assertThat(uncached.authenticate(token)).isPresent();
+        verify(jwtUtils, times(3)).parseClaims(anyString());
+    }
+}
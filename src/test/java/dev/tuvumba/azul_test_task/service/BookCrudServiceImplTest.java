@@ -1,29 +1,46 @@
 package dev.tuvumba.azul_test_task.service;
 
+import dev.tuvumba.azul_test_task.config.exceptions.PreconditionFailedException;
 import dev.tuvumba.azul_test_task.domain.Author;
 import dev.tuvumba.azul_test_task.domain.Book;
 import dev.tuvumba.azul_test_task.domain.Genre;
 import dev.tuvumba.azul_test_task.domain.dto.AuthorDto;
 import dev.tuvumba.azul_test_task.domain.dto.BookDto;
 import dev.tuvumba.azul_test_task.domain.dto.GenreDto;
+import dev.tuvumba.azul_test_task.domain.dto.PaginatedResponse;
 import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
 import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
 import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
 import dev.tuvumba.azul_test_task.repository.AuthorRepository;
 import dev.tuvumba.azul_test_task.repository.BookRepository;
-import dev.tuvumba.azul_test_task.repository.GenreRepository;
+import dev.tuvumba.azul_test_task.service.base.BookSearch;
+import dev.tuvumba.azul_test_task.service.base.StockLedger;
+import dev.tuvumba.azul_test_task.service.cache.BookCache;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.cache.GenreRegistry;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import dev.tuvumba.azul_test_task.service.retry.OptimisticLockRetry;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
@@ -44,7 +61,7 @@ class BookCrudServiceImplTest {
     private AuthorRepository authorRepository;
 
     @Mock
-    private GenreRepository genreRepository;
+    private GenreRegistry genreRegistry;
 
     @Mock
     private BookMapper bookMapper;
@@ -55,6 +72,21 @@ class BookCrudServiceImplTest {
     @Mock
     private GenreMapper genreMapper;
 
+    @Spy
+    private BookCache bookCache = new BookCache(100, Duration.ofMinutes(1));
+
+    @Spy
+    private CatalogVersion catalogVersion = new CatalogVersion();
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private BookSearch bookSearch;
+
+    @Mock
+    private StockLedger stockLedger;
+
     private Author existingAuthor;
     private Genre existingGenre;
     private BookDto bookDto;
@@ -94,8 +126,8 @@ class BookCrudServiceImplTest {
 
     @Test
     void shouldSaveBookSuccessfully() {
-        when(authorRepository.findById(1L)).thenReturn(Optional.of(existingAuthor));
-        when(genreRepository.findById("Programming")).thenReturn(Optional.of(existingGenre));
+        when(authorRepository.findAllById(Set.of(1L))).thenReturn(List.of(existingAuthor));
+        when(genreRegistry.resolve(List.of("Programming"))).thenReturn(List.of(existingGenre));
 
         when(bookRepository.save(any(Book.class))).thenReturn(bookEntity);
         when(bookMapper.toEntity(any(BookDto.class))).thenReturn(bookEntity);
@@ -106,30 +138,60 @@ class BookCrudServiceImplTest {
         assertThat (savedBook).isPresent();
         assertThat(savedBook.get().getId()).isEqualTo(9780136083238L);
         verify(bookRepository).save(any(Book.class));
+        verify(eventPublisher).publishEvent(BookChangedEvent.changed(9780136083238L));
     }
 
     @Test
     void shouldFailToSaveWhenAuthorDoesNotExist() {
-        when(authorRepository.findById(1L)).thenReturn(Optional.empty());
+        when(authorRepository.findAllById(Set.of(1L))).thenReturn(List.of());
 
         EntityNotFoundException exception = assertThrows(
                 EntityNotFoundException.class,
                 () -> bookService.save(bookDto)
         );
 
-        assertThat(exception.getMessage()).isEqualTo("Author(s) of the book has not been found. Add them before adding a book.");
+        assertThat(exception.getMessage()).isEqualTo("Author(s) of the book has not been found. Add them before adding a book. Missing IDs: [1]");
         verify(bookRepository, never()).save(any(Book.class));
     }
 
     @Test
-    void shouldSaveBookWithNewlyCreatedGenre() {
-        when(authorRepository.findById(1L)).thenReturn(Optional.of(existingAuthor));
-        when(genreRepository.findById("Programming")).thenReturn(Optional.empty());
+    void shouldReportAllMissingAuthorsTogether() {
+        bookDto.setAuthors(List.of(new AuthorDto(1L, null, null), new AuthorDto(7L, null, null), new AuthorDto(8L, null, null)));
+        when(authorRepository.findAllById(Set.of(1L, 7L, 8L))).thenReturn(List.of(existingAuthor));
+
+        assertThatThrownBy(() -> bookService.save(bookDto))
+                .isInstanceOf(EntityNotFoundException.class)
+                .hasMessageEndingWith("Missing IDs: [7, 8]");
+        verify(authorRepository, never()).findById(any());
+    }
 
+    @Test
+    void shouldKeepAuthorOrderWhenResolvingInOneQuery() {
+        Author secondAuthor = new Author();
+        secondAuthor.setId(2L);
+        secondAuthor.setDisplayName("Stephen King");
+        Map<String, Object> updates = Map.of(
+                "authors", List.of(Map.of("id", 2L), Map.of("id", 1L), Map.of("id", 2L))
+        );
+
+        when(bookRepository.findById(bookDto.getId())).thenReturn(Optional.of(bookEntity));
+        when(authorRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(existingAuthor, secondAuthor));
+        when(bookMapper.toDto(any())).thenReturn(bookDto);
+
+        bookService.updateBook(bookDto.getId(), updates);
+
+        assertThat(bookEntity.getAuthors()).isEqualTo(List.of(secondAuthor, existingAuthor));
+        verify(authorRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void shouldResolveAllGenresOfSavedBookAtOnce() {
+        bookDto.setGenres(List.of(new GenreDto("Programming"), new GenreDto("Java")));
         Genre newGenre = new Genre();
-        newGenre.setName("Programming");
+        newGenre.setName("Java");
 
-        when(genreRepository.save(any(Genre.class))).thenReturn(newGenre);
+        when(authorRepository.findAllById(Set.of(1L))).thenReturn(List.of(existingAuthor));
+        when(genreRegistry.resolve(List.of("Programming", "Java"))).thenReturn(List.of(existingGenre, newGenre));
         when(bookRepository.save(any(Book.class))).thenReturn(bookEntity);
         when(bookMapper.toEntity(any(BookDto.class))).thenReturn(bookEntity);
         when(bookMapper.toDto(any(Book.class))).thenReturn(bookDto);
@@ -137,14 +199,43 @@ class BookCrudServiceImplTest {
         Optional<BookDto> savedBook = bookService.save(bookDto);
 
         assertThat(savedBook).isPresent();
-        verify(genreRepository).save(any(Genre.class));
+        verify(genreRegistry, times(1)).resolve(any());
         verify(bookRepository).save(any(Book.class));
     }
 
+    @Test
+    void shouldSaveOnRetryAfterLosingToConcurrentWrite() {
+        Book storedAtThree = new Book();
+        storedAtThree.setVersion(3);
+        Book storedAtFour = new Book();
+        storedAtFour.setVersion(4);
+        List<Long> savedVersions = new ArrayList<>();
+
+        when(authorRepository.findAllById(Set.of(1L))).thenReturn(List.of(existingAuthor));
+        when(genreRegistry.resolve(List.of("Programming"))).thenReturn(List.of(existingGenre));
+        // a concurrent write lands between the first read and the first save
+        when(bookRepository.findById(bookDto.getId())).thenReturn(Optional.of(storedAtThree), Optional.of(storedAtFour));
+        when(bookMapper.toEntity(bookDto)).thenReturn(bookEntity);
+        when(bookRepository.save(any(Book.class))).thenAnswer(invocation -> {
+            savedVersions.add(invocation.<Book>getArgument(0).getVersion());
+            if (savedVersions.size() == 1) {
+                throw new ObjectOptimisticLockingFailureException(Book.class, bookDto.getId());
+            }
+            return bookEntity;
+        });
+        when(bookMapper.toDto(any(Book.class))).thenReturn(bookDto);
+
+        Optional<BookDto> savedBook = new OptimisticLockRetry(3, Duration.ZERO).run(() -> bookService.save(bookDto));
+
+        assertThat(savedBook).isPresent();
+        assertEquals(List.of(3L, 4L), savedVersions);
+        assertNull(bookDto.getVersion());
+    }
+
     @Test
     void shouldHandleIllegalArgumentException() {
-        when(authorRepository.findById(1L)).thenReturn(Optional.of(existingAuthor));
-        when(genreRepository.findById("Programming")).thenReturn(Optional.of(existingGenre));
+        when(authorRepository.findAllById(Set.of(1L))).thenReturn(List.of(existingAuthor));
+        when(genreRegistry.resolve(List.of("Programming"))).thenReturn(List.of(existingGenre));
         when(bookMapper.toEntity(bookDto)).thenReturn(bookEntity);
 
         doThrow(new IllegalArgumentException("Invalid book data"))
@@ -156,6 +247,43 @@ class BookCrudServiceImplTest {
         verify(bookRepository).save(any(Book.class));
     }
 
+    // testing findById()
+
+    @Test
+    void shouldServeRepeatedFindByIdFromCache() {
+        when(bookRepository.findById(bookDto.getId())).thenReturn(Optional.of(bookEntity));
+        when(bookMapper.toDto(bookEntity)).thenReturn(bookDto);
+
+        assertThat(bookService.findById(bookDto.getId())).contains(bookDto);
+        assertThat(bookService.findById(bookDto.getId())).contains(bookDto);
+
+        verify(bookRepository, times(1)).findById(bookDto.getId());
+        assertThat(bookCache.stats().getHitCount()).isEqualTo(1);
+        assertThat(bookCache.stats().getMissCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReloadBookAfterInvalidation() {
+        when(bookRepository.findById(bookDto.getId())).thenReturn(Optional.of(bookEntity));
+        when(bookMapper.toDto(bookEntity)).thenReturn(bookDto);
+
+        bookService.findById(bookDto.getId());
+        bookCache.onBookChanged(BookChangedEvent.changed(bookDto.getId()));
+        bookService.findById(bookDto.getId());
+
+        verify(bookRepository, times(2)).findById(bookDto.getId());
+    }
+
+    @Test
+    void shouldNotCacheMissingBooks() {
+        when(bookRepository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThat(bookService.findById(1L)).isEmpty();
+        assertThat(bookService.findById(1L)).isEmpty();
+
+        verify(bookRepository, times(2)).findById(1L);
+    }
+
     // testing update()
 
     @Test
@@ -186,6 +314,29 @@ class BookCrudServiceImplTest {
         verify(bookRepository).save(bookEntity);
     }
 
+    @Test
+    void shouldRejectUpdateOfAnotherVersion() {
+        bookEntity.setVersion(4);
+        when(bookRepository.findById(bookDto.getId())).thenReturn(Optional.of(bookEntity));
+
+        assertThatThrownBy(() -> bookService.updateBook(bookDto.getId(), Map.of("quantity", 10), 3L))
+                .isInstanceOf(PreconditionFailedException.class);
+        verify(bookRepository, never()).save(any());
+    }
+
+    @Test
+    void shouldTurnConcurrentWriteIntoFailedPreconditionOnlyForConditionalUpdates() {
+        bookEntity.setVersion(3);
+        when(bookRepository.findById(bookDto.getId())).thenReturn(Optional.of(bookEntity));
+        doThrow(new ObjectOptimisticLockingFailureException(Book.class, bookDto.getId())).when(bookRepository).flush();
+
+        assertThatThrownBy(() -> bookService.updateBook(bookDto.getId(), Map.of("quantity", 10), 3L))
+                .isInstanceOf(PreconditionFailedException.class);
+        assertThatThrownBy(() -> bookService.updateBook(bookDto.getId(), Map.of("quantity", 10)))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
     @Test
     void shouldThrowExceptionForInvalidPriceType() {
         Map<String, Object> updates = Map.of("price", "invalidPrice");
@@ -246,7 +397,7 @@ class BookCrudServiceImplTest {
         );
 
         when(bookRepository.findById(bookDto.getId())).thenReturn(Optional.of(bookEntity));
-        when(authorRepository.findById(999L)).thenReturn(Optional.empty());
+        when(authorRepository.findAllById(Set.of(999L))).thenReturn(List.of());
 
         assertThatThrownBy(() -> bookService.updateBook(bookDto.getId(), updates))
                 .hasMessageContaining("Author(s) of the book has not been found.");
@@ -259,7 +410,7 @@ class BookCrudServiceImplTest {
         );
 
         when(bookRepository.findById(bookDto.getId())).thenReturn(Optional.of(bookEntity));
-        when(authorRepository.findById(1L)).thenReturn(Optional.of(existingAuthor));
+        when(authorRepository.findAllById(Set.of(1L))).thenReturn(List.of(existingAuthor));
         when(bookRepository.save(any(Book.class))).thenReturn(bookEntity);
         when(bookMapper.toDto(any(Book.class))).thenReturn(bookDto);
 
@@ -276,16 +427,103 @@ class BookCrudServiceImplTest {
                 "genres", List.of("Programming", "Java")
         );
 
+        Genre newGenre = new Genre();
+        newGenre.setName("Java");
+
         when(bookRepository.findById(bookDto.getId())).thenReturn(Optional.of(bookEntity));
-        when(genreRepository.findById("Programming")).thenReturn(Optional.of(existingGenre));
-        when(genreRepository.findById("Java")).thenReturn(Optional.empty());
+        when(genreRegistry.resolve(List.of("Programming", "Java"))).thenReturn(List.of(existingGenre, newGenre));
+        when(bookMapper.toDto(any())).thenReturn(bookDto);
 
         bookService.updateBook(bookDto.getId(), updates);
 
-        Genre updatedGenre = new Genre();
-        updatedGenre.setName("Java");
-        verify(genreRepository).save(updatedGenre);
+        assertThat(bookEntity.getGenres()).isEqualTo(List.of(existingGenre, newGenre));
+        verify(bookRepository).save(bookEntity);
+    }
+
+    // testing count-free paging
+    @Test
+    void shouldNotCountWhenTotalsAreNotRequested() {
+        Pageable pageable = PageRequest.of(0, 1);
+        when(bookRepository.findSliceBy(pageable)).thenReturn(new SliceImpl<>(List.of(bookEntity), pageable, true));
+        when(bookMapper.toDtoList(List.of(bookEntity))).thenReturn(List.of(bookDto));
+
+        PaginatedResponse<BookDto> response = bookService.findAll(pageable, false);
+
+        assertThat(response.isHasNext()).isTrue();
+        assertThat(response.getTotalElements()).isNull();
+        assertThat(response.getList()).isEqualTo(List.of(bookDto));
+        verify(bookRepository, never()).findAll(any(Pageable.class));
+    }
+
+    // testing stock reservation
+    @Test
+    void shouldReserveThroughStockLedger() {
+        when(stockLedger.reserve(1L, 3)).thenReturn(7);
+
+        assertThat(bookService.reserve(1L, 3).getQuantity()).isEqualTo(7);
+        assertThatThrownBy(() -> bookService.reserve(1L, 0)).isInstanceOf(IllegalArgumentException.class);
+        verify(stockLedger).reserve(1L, 3);
+        verifyNoMoreInteractions(stockLedger);
+    }
+
+    @Test
+    void shouldAddBufferedStockChangesWithoutTouchingCachedBook() {
+        when(bookRepository.findById(bookDto.getId())).thenReturn(Optional.of(bookEntity));
+        when(bookMapper.toDto(bookEntity)).thenReturn(bookDto);
+        when(stockLedger.pending(bookDto.getId())).thenReturn(-4L);
+
+        assertThat(bookService.findById(bookDto.getId()).orElseThrow().getQuantity()).isEqualTo(1);
+        assertThat(bookService.findById(bookDto.getId()).orElseThrow().getQuantity()).isEqualTo(1);
+        assertThat(bookDto.getQuantity()).isEqualTo(5);
     }
 
+    @Test
+    void shouldTagCachedBookWithoutQuery() {
+        when(bookRepository.findById(bookDto.getId())).thenReturn(Optional.of(bookEntity));
+        when(bookMapper.toDto(bookEntity)).thenReturn(bookDto);
+        bookDto.setVersion(4L);
+        bookService.findById(bookDto.getId());
+
+        assertThat(bookService.findETag(bookDto.getId())).contains(catalogVersion.bookETag(4, 0));
+        verify(bookRepository, never()).findVersionById(any());
 
-}
\ No newline at end of file
+        when(bookRepository.findVersionById(2L)).thenReturn(Optional.of(9L));
+        when(stockLedger.pending(2L)).thenReturn(-3L);
+        assertThat(bookService.findETag(2L).orElseThrow()).startsWith("9.-3@");
+    }
+
+    @Test
+    void shouldTagUpdatedBookLikeFollowingRead() {
+        bookEntity.setVersion(4);
+        when(bookRepository.findById(bookDto.getId())).thenReturn(Optional.of(bookEntity));
+        when(bookRepository.save(bookEntity)).thenAnswer(invocation -> {
+            bookEntity.setVersion(5);
+            return bookEntity;
+        });
+        when(bookMapper.toDto(bookEntity)).thenAnswer(invocation -> {
+            bookDto.setVersion(bookEntity.getVersion());
+            return bookDto;
+        });
+        when(stockLedger.pending(bookDto.getId())).thenReturn(-2L);
+
+        BookDto updatedBook = bookService.updateBook(bookDto.getId(), Map.of("price", 30));
+
+        assertThat(updatedBook.getQuantity()).isEqualTo(3);
+        when(bookRepository.findVersionById(bookDto.getId())).thenReturn(Optional.of(5L));
+        assertThat(bookService.findETag(bookDto.getId())).contains(bookService.eTag(updatedBook));
+    }
+
+    @Test
+    void shouldChangeTagOfEveryBookWhenAnAuthorIsRenamed() {
+        when(bookRepository.findVersionById(2L)).thenReturn(Optional.of(9L));
+        String before = bookService.findETag(2L).orElseThrow();
+
+        // other books changing leaves the tag alone
+        catalogVersion.onBookChanged(BookChangedEvent.changed(3L));
+        assertEquals(before, bookService.findETag(2L).orElseThrow());
+
+        // AuthorController publishes this after saving an author
+        catalogVersion.onBookChanged(BookChangedEvent.everything());
+        assertNotEquals(before, bookService.findETag(2L).orElseThrow());
+    }
+}
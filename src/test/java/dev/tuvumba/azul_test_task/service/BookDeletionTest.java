@@ -0,0 +1,166 @@
+package dev.tuvumba.azul_test_task.service;
+
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import dev.tuvumba.azul_test_task.service.cache.BookCache;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.cache.GenreRegistry;
+import dev.tuvumba.azul_test_task.service.search.LikeBookSearch;
+import dev.tuvumba.azul_test_task.service.stock.DirectStockLedger;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ *  Checks that deleting books removes authors left without books, with the same number of statements for one book or many. <br>
+ *  Runs on an embedded database, the Postgres schema script is skipped and the schema is generated.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({BookCrudServiceImpl.class, BookMapper.class, AuthorMapper.class, GenreMapper.class,
+        BookCache.class, CatalogVersion.class, GenreRegistry.class, LikeBookSearch.class, DirectStockLedger.class})
+class BookDeletionTest {
+
+    // two reads of IDs, join rows and books, join rows and authors left without books
+    private static final long MAX_STATEMENTS_PER_DELETE = 7;
+
+    @Autowired
+    private BookCrudServiceImpl bookService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    // writes many books, keeps some of them
+    private Author prolific;
+    // wrote only book 1
+    private Author single;
+    // wrote nothing, must not be touched
+    private Author idle;
+
+    @BeforeEach
+    void setUp() {
+        prolific = author("Prolific");
+        single = author("Single");
+        idle = author("Idle");
+
+        book(1L, List.of(prolific, single));
+        for (long id = 2; id <= 30; id++) {
+            book(id, List.of(prolific));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void shouldDeleteExistingBooksAndAuthorsLeftWithoutBooks() {
+        List<Long> deleted = bookService.deleteAll(List.of(1L, 99L));
+
+        assertThat(deleted).containsExactly(1L);
+        entityManager.clear();
+        assertThat(entityManager.find(Book.class, 1L)).isNull();
+        assertThat(entityManager.find(Author.class, single.getId())).isNull();
+        assertThat(entityManager.find(Author.class, prolific.getId()).getBooks()).hasSize(29);
+        assertThat(entityManager.find(Author.class, idle.getId())).isNotNull();
+        assertThat(joinRowsOf(1L)).isZero();
+    }
+
+    @Test
+    void shouldDeleteOneOrManyBooksWithSameStatementCount() {
+        assertThat(statementsFor(List.of(2L))).isLessThanOrEqualTo(MAX_STATEMENTS_PER_DELETE);
+        assertThat(statementsFor(LongStream.rangeClosed(3, 30).boxed().toList())).isLessThanOrEqualTo(MAX_STATEMENTS_PER_DELETE);
+
+        entityManager.clear();
+        assertThat(entityManager.find(Author.class, prolific.getId()).getBooks()).hasSize(1);
+    }
+
+    @Test
+    void shouldDeleteAuthorsInSlicesOfBoundedSize() {
+        List<Author> coauthors = new ArrayList<>();
+        for (int i = 0; i <= BookCrudServiceImpl.AUTHOR_IDS_PER_STATEMENT; i++) {
+            coauthors.add(author("Coauthor " + i));
+        }
+        book(31L, coauthors);
+        entityManager.flush();
+
+        // one more slice of author IDs than for a book with few authors, each deletes join rows and authors
+        assertThat(statementsFor(List.of(31L))).isLessThanOrEqualTo(MAX_STATEMENTS_PER_DELETE + 2);
+
+        entityManager.clear();
+        assertThat(entityManager.find(Author.class, coauthors.get(0).getId())).isNull();
+        assertThat(entityManager.find(Author.class, coauthors.get(coauthors.size() - 1).getId())).isNull();
+        assertThat(entityManager.find(Author.class, idle.getId())).isNotNull();
+    }
+
+    @Test
+    void shouldReturnNothingForUnknownBooks() {
+        assertThat(bookService.deleteAll(List.of(99L))).isEmpty();
+        assertThat(bookService.deleteAll(List.of())).isEmpty();
+    }
+
+    @Test
+    void shouldRejectTooManyOrNullIds() {
+        List<Long> tooMany = LongStream.rangeClosed(1, 5001).boxed().toList();
+        List<Long> withNull = new ArrayList<>();
+        withNull.add(null);
+
+        assertThatThrownBy(() -> bookService.deleteAll(tooMany)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bookService.deleteAll(withNull)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private long statementsFor(List<Long> ids) {
+        entityManager.clear();
+        statistics.clear();
+        bookService.deleteAll(ids);
+        return statistics.getPrepareStatementCount();
+    }
+
+    private long joinRowsOf(Long bookId) {
+        return ((Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM book_author WHERE book_id = :id")
+                .setParameter("id", bookId)
+                .getSingleResult()).longValue();
+    }
+
+    private Author author(String name) {
+        Author author = new Author();
+        author.setDisplayName(name);
+        entityManager.persist(author);
+        return author;
+    }
+
+    private void book(Long id, List<Author> authors) {
+        Book book = new Book();
+        book.setId(id);
+        book.setName("Book " + id);
+        book.setPrice(BigDecimal.TEN);
+        book.setQuantity(1);
+        book.setAuthors(new ArrayList<>(authors));
+        book.setGenres(new ArrayList<>());
+        entityManager.persist(book);
+    }
+}
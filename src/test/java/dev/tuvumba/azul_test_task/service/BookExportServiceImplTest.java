@@ -0,0 +1,144 @@
+package dev.tuvumba.azul_test_task.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.GenreDto;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.service.base.StockLedger;
+import dev.tuvumba.azul_test_task.service.imports.BookImportFormat;
+import dev.tuvumba.azul_test_task.service.imports.BookRow;
+import dev.tuvumba.azul_test_task.service.imports.BookRowReader;
+import dev.tuvumba.azul_test_task.service.stock.DirectStockLedger;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *  Exports the catalog from an embedded database and reads the output back with the import readers.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({BookMapper.class, AuthorMapper.class, GenreMapper.class, DirectStockLedger.class})
+class BookExportServiceImplTest {
+
+    private static final int BOOKS = 25;
+    private static final int FETCH_SIZE = 10;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private BookMapper bookMapper;
+
+    @Autowired
+    private StockLedger stockLedger;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private BookExportServiceImpl exportService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        Genre mystery = new Genre("Mystery", new ArrayList<>());
+        Genre thriller = new Genre("Thriller", new ArrayList<>());
+        entityManager.persist(mystery);
+        entityManager.persist(thriller);
+
+        for (long i = 1; i <= BOOKS; i++) {
+            Author author = new Author();
+            author.setDisplayName("Author " + i);
+            entityManager.persist(author);
+
+            Book book = new Book();
+            book.setId(i);
+            book.setName(i == 1 ? "Murder, \"She\" Wrote" : "Book " + i);
+            book.setPrice(new BigDecimal("9.99"));
+            book.setQuantity((int) i);
+            book.setAuthors(List.of(author));
+            book.setGenres(List.of(mystery, thriller));
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        exportService = new BookExportServiceImpl(bookRepository, entityManager, bookMapper, stockLedger, objectMapper, FETCH_SIZE);
+    }
+
+    @Test
+    void shouldExportCsvThatImportsBack() throws IOException {
+        List<BookDto> books = exportAndReadBack(BookImportFormat.CSV);
+
+        assertThat(books).hasSize(BOOKS);
+        assertThat(books.get(0).getName()).isEqualTo("Murder, \"She\" Wrote");
+        assertThat(books.get(0).getPrice()).isEqualByComparingTo("9.99");
+        assertThat(books).allSatisfy(book -> {
+            assertThat(book.getAuthors()).hasSize(1);
+            assertThat(book.getGenres()).extracting(GenreDto::getName).containsExactlyInAnyOrder("Mystery", "Thriller");
+        });
+    }
+
+    @Test
+    void shouldExportNdjsonInIdOrder() throws IOException {
+        List<BookDto> books = exportAndReadBack(BookImportFormat.NDJSON);
+
+        assertThat(books).extracting(BookDto::getId).isSorted().hasSize(BOOKS);
+        assertThat(books).extracting(BookDto::getQuantity).containsExactly(
+                IntStream.rangeClosed(1, BOOKS).boxed().toArray(Integer[]::new));
+    }
+
+    @Test
+    void shouldQueryPerChunkAndDetachWhatWasWritten() throws IOException {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        exportService.exportBooks(new ByteArrayOutputStream(), BookImportFormat.NDJSON);
+
+        // the cursor, then authors and genres of each of the three chunks
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1 + 2 * 3);
+        assertThat(entityManager.unwrap(Session.class).getStatistics().getEntityCount()).isZero();
+    }
+
+    private List<BookDto> exportAndReadBack(BookImportFormat format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        assertThat(exportService.exportBooks(output, format)).isEqualTo(BOOKS);
+
+        List<BookDto> books = new ArrayList<>();
+        try (BookRowReader reader = format.openReader(new ByteArrayInputStream(output.toByteArray()), objectMapper)) {
+            for (BookRow row = reader.next(); row != null; row = reader.next()) {
+                assertThat(row.isFailed()).as(row.error()).isFalse();
+                books.add(row.book());
+            }
+        }
+        return books;
+    }
+}
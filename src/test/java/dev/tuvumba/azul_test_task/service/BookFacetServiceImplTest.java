@@ -0,0 +1,133 @@
+package dev.tuvumba.azul_test_task.service;
+
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.BookFacetsDto;
+import dev.tuvumba.azul_test_task.domain.dto.FacetCountDto;
+import dev.tuvumba.azul_test_task.domain.dto.PriceBucketDto;
+import dev.tuvumba.azul_test_task.repository.specifications.BookSearchCriteria;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ *  Counts facets of books in an embedded database.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class BookFacetServiceImplTest {
+
+    private static final BookSearchCriteria EVERYTHING = new BookSearchCriteria(null, null, null, null, null, null, null, null);
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final CatalogVersion catalogVersion = new CatalogVersion();
+    private BookFacetServiceImpl facetService;
+    private Author christie;
+
+    /*
+        Books 1-6 by Agatha Christie priced 5, 10, ..., 30, mysteries; books 2 and 4 are thrillers as well.
+        Books 7-8 by Stephen King priced 100, horror.
+     */
+    @BeforeEach
+    void setUp() {
+        Genre mystery = new Genre("Mystery", new ArrayList<>());
+        Genre thriller = new Genre("Thriller", new ArrayList<>());
+        Genre horror = new Genre("Horror", new ArrayList<>());
+        entityManager.persist(mystery);
+        entityManager.persist(thriller);
+        entityManager.persist(horror);
+        christie = author("Agatha Christie");
+        Author king = author("Stephen King");
+
+        for (long i = 1; i <= 8; i++) {
+            Book book = new Book();
+            book.setId(i);
+            book.setName("Book " + i);
+            book.setQuantity(1);
+            if (i <= 6) {
+                book.setPrice(BigDecimal.valueOf(5 * i));
+                book.setAuthors(List.of(christie));
+                book.setGenres(i % 2 == 0 && i <= 4 ? List.of(mystery, thriller) : List.of(mystery));
+            } else {
+                book.setPrice(BigDecimal.valueOf(100));
+                book.setAuthors(List.of(king));
+                book.setGenres(List.of(horror));
+            }
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        facetService = new BookFacetServiceImpl(entityManager, catalogVersion,
+                new BigDecimal[]{BigDecimal.TEN, new BigDecimal("20"), new BigDecimal("50")}, 20, 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void shouldCountEveryFacetOfTheWholeCatalog() {
+        BookFacetsDto facets = facetService.facets(EVERYTHING);
+
+        assertThat(facets.getTotal()).isEqualTo(8);
+        assertThat(facets.getGenres()).extracting(FacetCountDto::getValue, FacetCountDto::getCount)
+                .containsExactly(tuple("Mystery", 6L), tuple("Horror", 2L), tuple("Thriller", 2L));
+        assertThat(facets.getAuthors()).extracting(FacetCountDto::getLabel, FacetCountDto::getCount)
+                .containsExactly(tuple("Agatha Christie", 6L), tuple("Stephen King", 2L));
+        // 5 | 10, 15 | 20, 25, 30 | 100, 100
+        assertThat(facets.getPrices()).extracting(PriceBucketDto::getCount).containsExactly(1L, 2L, 3L, 2L);
+        assertThat(facets.getPrices().get(3).getTo()).isNull();
+    }
+
+    @Test
+    void shouldCountOnlyBooksMatchingTheFilters() {
+        BookFacetsDto facets = facetService.facets(new BookSearchCriteria(null, christie.getId(), null, "thriller", null, null, null, null));
+
+        assertThat(facets.getTotal()).isEqualTo(2);
+        assertThat(facets.getGenres()).extracting(FacetCountDto::getValue, FacetCountDto::getCount)
+                .containsExactly(tuple("Mystery", 2L), tuple("Thriller", 2L));
+        assertThat(facets.getPrices()).extracting(PriceBucketDto::getCount).containsExactly(0L, 1L, 1L, 0L);
+    }
+
+    @Test
+    void shouldServeRepeatedSearchesFromCacheUntilTheCatalogChanges() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        facetService.facets(EVERYTHING);
+
+        statistics.clear();
+        facetService.facets(EVERYTHING);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        catalogVersion.onBookChanged(BookChangedEvent.changed(1L));
+        facetService.onBookChanged(BookChangedEvent.changed(1L));
+        facetService.facets(EVERYTHING);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    private Author author(String name) {
+        Author author = new Author();
+        author.setDisplayName(name);
+        entityManager.persist(author);
+        return author;
+    }
+}
@@ -0,0 +1,153 @@
+package dev.tuvumba.azul_test_task.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.BulkImportResult;
+import dev.tuvumba.azul_test_task.repository.AuthorRepository;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.service.cache.GenreRegistry;
+import dev.tuvumba.azul_test_task.service.imports.BookImportFormat;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookImportServiceImplTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private AuthorRepository authorRepository;
+
+    @Mock
+    private GenreRegistry genreRegistry;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private BookImportServiceImpl importService;
+
+    @BeforeEach
+    void setUp() {
+        importService = new BookImportServiceImpl(bookRepository, authorRepository, genreRegistry, entityManager,
+                transactionManager, new ObjectMapper(), eventPublisher, 2, 10);
+
+        Author author = new Author();
+        author.setId(1L);
+        lenient().when(authorRepository.findAllById(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.contains(1L) ? List.of(author) : List.of();
+        });
+        lenient().when(genreRegistry.resolve(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> names = invocation.getArgument(0);
+            return names.stream().map(name -> new Genre(name, new ArrayList<>())).toList();
+        });
+    }
+
+    private InputStream body(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldImportCsvInChunksWithOneLookupPerChunk() throws IOException {
+        String csv = """
+                id,name,price,quantity,authors,genres
+                1,"Book, the first",10.50,3,1,Programming;Mystery
+                2,Second,5,1,1,Programming
+                3,Third,7,0,,
+                """;
+
+        BulkImportResult result = importService.importBooks(body(csv), BookImportFormat.CSV);
+
+        assertThat(result.getRowsRead()).isEqualTo(3);
+        assertThat(result.getImported()).isEqualTo(3);
+        assertThat(result.getFailed()).isZero();
+
+        ArgumentCaptor<Book> persisted = ArgumentCaptor.forClass(Book.class);
+        verify(entityManager, times(3)).persist(persisted.capture());
+        assertThat(persisted.getAllValues().get(0).getName()).isEqualTo("Book, the first");
+        assertThat(persisted.getAllValues().get(0).getPrice()).isEqualTo(new BigDecimal("10.50"));
+        assertThat(persisted.getAllValues().get(0).getGenres()).extracting(Genre::getName).containsExactly("Programming", "Mystery");
+
+        // chunk size is 2, so two chunks
+        verify(authorRepository, times(2)).findAllById(anyCollection());
+        verify(bookRepository, times(2)).findAllById(anyCollection());
+        verify(entityManager, times(2)).clear();
+    }
+
+    @Test
+    void shouldReportFailedRowsAndImportTheRest() throws IOException {
+        String ndjson = """
+                {"id": 1, "name": "Good", "price": 1.00, "quantity": 1, "authors": [{"id": 1}], "genres": []}
+                {"id": 2, "name": "Negative", "price": -1, "quantity": 1}
+                not json
+
+                {"id": 4, "name": "Unknown author", "price": 2, "quantity": 1, "authors": [{"id": 99}]}
+                {"id": 5, "name": "Also good", "price": 3, "quantity": 1}
+                """;
+
+        BulkImportResult result = importService.importBooks(body(ndjson), BookImportFormat.NDJSON);
+
+        assertThat(result.getRowsRead()).isEqualTo(5);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(3);
+        assertThat(result.getFailures()).extracting(BulkImportResult.RowFailure::getLine).containsExactlyInAnyOrder(2L, 3L, 5L);
+        verify(entityManager, times(2)).persist(any(Book.class));
+    }
+
+    @Test
+    void shouldUpdateExistingBooksInsteadOfPersisting() throws IOException {
+        Book existing = new Book();
+        existing.setId(1L);
+        existing.setName("Old name");
+        existing.setPrice(BigDecimal.ONE);
+        when(bookRepository.findAllById(anyCollection())).thenReturn(List.of(existing));
+
+        importService.importBooks(body("id,name,price,quantity\n1,New name,2,5\n"), BookImportFormat.CSV);
+
+        assertThat(existing.getName()).isEqualTo("New name");
+        assertThat(existing.getQuantity()).isEqualTo(5);
+        verify(entityManager, never()).persist(any());
+    }
+
+    @Test
+    void shouldRetryFailedChunkRowByRow() throws IOException {
+        doThrow(new IllegalStateException("constraint violated")).doNothing().doThrow(new IllegalStateException("constraint violated"))
+                .when(entityManager).flush();
+
+        BulkImportResult result = importService.importBooks(body("id,name,price,quantity\n1,First,2,5\n2,Second,2,5\n"), BookImportFormat.CSV);
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getFailures()).singleElement()
+                .satisfies(failure -> assertThat(failure.getId()).isEqualTo(2L));
+    }
+}
@@ -0,0 +1,111 @@
+package dev.tuvumba.azul_test_task.service;
+
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.PaginatedResponse;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import dev.tuvumba.azul_test_task.service.cache.BookCache;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.cache.GenreRegistry;
+import dev.tuvumba.azul_test_task.service.search.LikeBookSearch;
+import dev.tuvumba.azul_test_task.service.stock.DirectStockLedger;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *  Checks that listing books takes the same number of statements no matter how big the page is. <br>
+ *  Runs on an embedded database, the Postgres schema script is skipped and the schema is generated.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({BookCrudServiceImpl.class, BookMapper.class, AuthorMapper.class, GenreMapper.class,
+        BookCache.class, CatalogVersion.class, GenreRegistry.class, LikeBookSearch.class, DirectStockLedger.class})
+class BookPageStatementCountTest {
+
+    // page query, count query, authors and genres of the page
+    private static final long MAX_STATEMENTS_PER_PAGE = 4;
+
+    @Autowired
+    private BookCrudServiceImpl bookService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Genre mystery = new Genre("Mystery", new java.util.ArrayList<>());
+        Genre thriller = new Genre("Thriller", new java.util.ArrayList<>());
+        entityManager.persist(mystery);
+        entityManager.persist(thriller);
+
+        for (long i = 1; i <= 40; i++) {
+            Author author = new Author();
+            author.setDisplayName("Author " + i);
+            entityManager.persist(author);
+
+            Book book = new Book();
+            book.setId(i);
+            book.setName("Book " + i);
+            book.setPrice(BigDecimal.TEN);
+            book.setQuantity(1);
+            book.setAuthors(List.of(author));
+            book.setGenres(List.of(mystery, thriller));
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void shouldLoadSmallAndLargePagesWithSameStatementCount() {
+        assertThat(statementsFor(5)).isLessThanOrEqualTo(MAX_STATEMENTS_PER_PAGE);
+        assertThat(statementsFor(40)).isLessThanOrEqualTo(MAX_STATEMENTS_PER_PAGE);
+    }
+
+    @Test
+    void shouldMapAssociationsOfEveryBookOnThePage() {
+        PaginatedResponse<BookDto> page = bookService.findAll(PageRequest.of(0, 40, Sort.by("id")));
+
+        assertThat(page.getList()).hasSize(40);
+        assertThat(page.getList()).allSatisfy(book -> {
+            assertThat(book.getAuthors()).hasSize(1);
+            assertThat(book.getGenres()).hasSize(2);
+        });
+    }
+
+    private long statementsFor(int size) {
+        entityManager.clear();
+        statistics.clear();
+        PaginatedResponse<BookDto> page = bookService.findAll(PageRequest.of(0, size, Sort.by("id")));
+        // a full page, so the associations of every book on it are loaded
+        assertThat(page.getList()).hasSize(size);
+        return statistics.getPrepareStatementCount();
+    }
+}
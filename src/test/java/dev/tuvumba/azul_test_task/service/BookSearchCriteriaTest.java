@@ -0,0 +1,150 @@
+package dev.tuvumba.azul_test_task.service;
+
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.PaginatedResponse;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import dev.tuvumba.azul_test_task.repository.specifications.BookSearchCriteria;
+import dev.tuvumba.azul_test_task.service.cache.BookCache;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.cache.GenreRegistry;
+import dev.tuvumba.azul_test_task.service.search.LikeBookSearch;
+import dev.tuvumba.azul_test_task.service.stock.DirectStockLedger;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ *  Runs composite searches of {@link BookCrudServiceImpl#search} against an embedded database.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@Import({BookCrudServiceImpl.class, BookMapper.class, AuthorMapper.class, GenreMapper.class,
+        BookCache.class, CatalogVersion.class, GenreRegistry.class, LikeBookSearch.class, DirectStockLedger.class})
+class BookSearchCriteriaTest {
+
+    @Autowired
+    private BookCrudServiceImpl bookService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Author christie;
+
+    /*
+        Books 1-10 by Agatha Christie, odd ones are mysteries, even ones thrillers, priced 5, 10, ..., 50 with quantity i % 3.
+        Books 11-20 by Stephen King, all horror, priced 15.
+     */
+    @BeforeEach
+    void setUp() {
+        Genre mystery = new Genre("Mystery", new ArrayList<>());
+        Genre thriller = new Genre("Thriller", new ArrayList<>());
+        Genre horror = new Genre("Horror", new ArrayList<>());
+        entityManager.persist(mystery);
+        entityManager.persist(thriller);
+        entityManager.persist(horror);
+
+        christie = author("Agatha Christie");
+        Author poirot = author("Hercule Poirot");
+        Author king = author("Stephen King");
+
+        for (long i = 1; i <= 20; i++) {
+            Book book = new Book();
+            book.setId(i);
+            boolean byChristie = i <= 10;
+            book.setName((byChristie ? "Murder " : "Horror ") + i);
+            book.setPrice(byChristie ? BigDecimal.valueOf(5 * i) : BigDecimal.valueOf(15));
+            book.setQuantity((int) (i % 3));
+            // two matching authors on one book must not return it twice
+            book.setAuthors(byChristie ? (i == 1 ? List.of(christie, poirot) : List.of(christie)) : List.of(king));
+            book.setGenres(byChristie ? List.of(i % 2 == 1 ? mystery : thriller) : List.of(horror));
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldCombineAllFiltersInOneQuery() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // mysteries by Christie under 20 in stock: 1 (5, qty 1) and 3 (15, qty 0) fall out on stock, 5 and later on price
+        BookSearchCriteria criteria = new BookSearchCriteria("murder", christie.getId(), "christie", "mystery",
+                null, new BigDecimal("20"), 1, null);
+        PaginatedResponse<BookDto> page = bookService.search(criteria, PageRequest.of(0, 10, Sort.by("id")), true);
+
+        assertThat(page.getList()).extracting(BookDto::getId).containsExactly(1L);
+        assertThat(page.getTotalElements()).isEqualTo(1L);
+        // page query, authors and genres of the page, the count is skipped as the first page is not full
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotDuplicateBooksMatchingSeveralAuthors() {
+        PaginatedResponse<BookDto> page = bookService.search(new BookSearchCriteria(null, null, "e", null, null, null, null, null),
+                PageRequest.of(0, 50, Sort.by("id")), true);
+
+        assertThat(page.getList()).hasSize(20);
+        assertThat(page.getTotalElements()).isEqualTo(20L);
+    }
+
+    @Test
+    void shouldPageWithoutCountAndByCursor() {
+        BookSearchCriteria horror = new BookSearchCriteria(null, null, null, "HORROR", new BigDecimal("15"), new BigDecimal("15"), null, null);
+
+        PaginatedResponse<BookDto> second = bookService.search(horror, PageRequest.of(1, 4, Sort.by("id")), false);
+        assertThat(second.getList()).extracting(BookDto::getId).containsExactly(15L, 16L, 17L, 18L);
+        assertThat(second.isHasNext()).isTrue();
+
+        PaginatedResponse<BookDto> first = bookService.search(horror, "", 6, Sort.by("id"));
+        assertThat(first.getList()).extracting(BookDto::getId).containsExactly(11L, 12L, 13L, 14L, 15L, 16L);
+        PaginatedResponse<BookDto> next = bookService.search(horror, first.getNext(), 6, Sort.by("id"));
+        assertThat(next.getList()).extracting(BookDto::getId).containsExactly(17L, 18L, 19L, 20L);
+    }
+
+    @Test
+    void shouldTreatWildcardsInFragmentsLiterally() {
+        PaginatedResponse<BookDto> page = bookService.search(new BookSearchCriteria("%", null, null, null, null, null, null, null),
+                PageRequest.of(0, 10), true);
+
+        assertThat(page.getList()).isEmpty();
+    }
+
+    @Test
+    void shouldRejectInvertedRanges() {
+        assertThatThrownBy(() -> new BookSearchCriteria(null, null, null, null, BigDecimal.TEN, BigDecimal.ONE, null, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Author author(String name) {
+        Author author = new Author();
+        author.setDisplayName(name);
+        entityManager.persist(author);
+        return author;
+    }
+}
@@ -0,0 +1,98 @@
+package dev.tuvumba.azul_test_task.service.cache;
+
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.repository.GenreRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class GenreRegistryTest {
+
+    @InjectMocks
+    private GenreRegistry genreRegistry;
+
+    @Mock
+    private GenreRepository genreRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(entityManager.getReference(eq(Genre.class), anyString()))
+                .thenAnswer(invocation -> new Genre(invocation.getArgument(1), new ArrayList<>()));
+        when(genreRepository.findAllNames()).thenReturn(List.of("Programming", "Mystery"));
+        genreRegistry.preload();
+    }
+
+    @Test
+    void shouldResolveKnownGenresWithoutDatabase() {
+        List<Genre> genres = genreRegistry.resolve(List.of("Mystery", "Programming", "Mystery"));
+
+        assertThat(genres).extracting(Genre::getName).containsExactly("Mystery", "Programming");
+        verify(genreRepository, never()).findAllById(any());
+        verify(genreRepository, never()).insertAllIfAbsent(any());
+    }
+
+    @Test
+    void shouldLookUpUnknownGenresInOneBatchAndCreateMissingOnes() {
+        when(genreRepository.findAllById(List.of("Java", "Poetry"))).thenReturn(List.of(new Genre("Poetry", new ArrayList<>())));
+
+        List<Genre> genres = genreRegistry.resolve(List.of("Programming", "Java", "Poetry"));
+
+        assertThat(genres).extracting(Genre::getName).containsExactly("Programming", "Java", "Poetry");
+        verify(genreRepository, times(1)).findAllById(any());
+        verify(genreRepository).insertAllIfAbsent(new String[]{"Java"});
+
+        // now known, no more round trips
+        genreRegistry.resolve(List.of("Java", "Poetry"));
+        verify(genreRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void shouldCreateAllMissingGenresInOneStatement() {
+        when(genreRepository.findAllById(List.of("Java", "Poetry", "Drama"))).thenReturn(List.of());
+
+        genreRegistry.resolve(List.of("Java", "Poetry", "Drama"));
+
+        verify(genreRepository, times(1)).insertAllIfAbsent(new String[]{"Java", "Poetry", "Drama"});
+    }
+
+    @Test
+    void shouldHandOutReferencesInsteadOfNewGenres() {
+        genreRegistry.resolve(List.of("Mystery"));
+
+        verify(entityManager).getReference(Genre.class, "Mystery");
+    }
+
+    @Test
+    void shouldLookUpForgottenGenreAgain() {
+        genreRegistry.forget("Mystery");
+        when(genreRepository.findAllById(List.of("Mystery"))).thenReturn(List.of());
+
+        genreRegistry.resolve(List.of("Mystery"));
+
+        verify(genreRepository).insertAllIfAbsent(new String[]{"Mystery"});
+    }
+
+    @Test
+    void shouldRejectBlankGenreNames() {
+        assertThatThrownBy(() -> genreRegistry.resolve(List.of(" ")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,75 @@
+package dev.tuvumba.azul_test_task.service.paging;
+
+import dev.tuvumba.azul_test_task.domain.Book;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScrollCursorTest {
+
+    @Test
+    void shouldRestoreKeysWithEntityTypes() {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        keys.put("price", new BigDecimal("19.90"));
+        keys.put("id", 9780132350884L);
+
+        String token = ScrollCursor.encode(ScrollPosition.forward(keys));
+        KeysetScrollPosition position = ScrollCursor.decode(token, Book.class, Sort.by("price"));
+
+        assertThat(token).doesNotContain("=", "&", "+", "/");
+        assertThat(position.getKeys()).isEqualTo(keys);
+    }
+
+    @Test
+    void shouldStartFromFirstPageOnBlankCursor() {
+        assertThat(ScrollCursor.decode("", Book.class, Sort.by("id")).isInitial()).isTrue();
+        assertThat(ScrollCursor.encode(ScrollPosition.keyset())).isNull();
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        String unknownField = ScrollCursor.encode(ScrollPosition.forward(Map.of("secret", 1, "id", 1L)));
+        String wrongType = ScrollCursor.encode(ScrollPosition.forward(Map.of("id", "abc")));
+
+        assertThatThrownBy(() -> ScrollCursor.decode("not base64!", Book.class, Sort.by("id")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ScrollCursor.decode(unknownField, Book.class, Sort.by("secret")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ScrollCursor.decode(wrongType, Book.class, Sort.by("id")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldRejectCursorOfAnotherSort() {
+        String token = ScrollCursor.encode(ScrollPosition.forward(Map.of("quantity", 3, "id", 1L)));
+
+        assertThatThrownBy(() -> ScrollCursor.decode(token, Book.class, Sort.by("price")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("sort");
+    }
+
+    @Test
+    void shouldRejectForgedKeys() {
+        // a field of the entity, but not one the request sorts by
+        String forged = ScrollCursor.encode(ScrollPosition.forward(Map.of("price", "1", "authors", "x", "id", 1L)));
+
+        assertThatThrownBy(() -> ScrollCursor.decode(forged, Book.class, Sort.by("price")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldRejectCursorWithoutId() {
+        String token = ScrollCursor.encode(ScrollPosition.forward(Map.of("price", new BigDecimal("19.90"))));
+
+        assertThatThrownBy(() -> ScrollCursor.decode(token, Book.class, Sort.by("price")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
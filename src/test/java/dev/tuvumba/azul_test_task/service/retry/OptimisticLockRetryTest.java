@@ -0,0 +1,48 @@
+package dev.tuvumba.azul_test_task.service.retry;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OptimisticLockRetryTest {
+
+    private final OptimisticLockRetry retry = new OptimisticLockRetry(3, Duration.ofMillis(1));
+
+    @Test
+    void shouldRetryUntilTheWriteWins() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retry.run(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new ObjectOptimisticLockingFailureException("Book", 1L);
+            }
+            return "saved";
+        });
+
+        assertThat(result).isEqualTo("saved");
+        assertThat(attempts).hasValue(3);
+    }
+
+    @Test
+    void shouldGiveUpAfterMaxAttemptsAndNotRetryOtherFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retry.run(() -> {
+            attempts.incrementAndGet();
+            throw new ObjectOptimisticLockingFailureException("Book", 1L);
+        })).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        assertThat(attempts).hasValue(3);
+
+        attempts.set(0);
+        assertThatThrownBy(() -> retry.run(() -> {
+            attempts.incrementAndGet();
+            throw new IllegalArgumentException("bad patch");
+        })).isInstanceOf(IllegalArgumentException.class);
+        assertThat(attempts).hasValue(1);
+    }
+}
@@ -0,0 +1,113 @@
+package dev.tuvumba.azul_test_task.service.search;
+
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.repository.projections.BookAuthorName;
+import dev.tuvumba.azul_test_task.repository.projections.BookSearchFields;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookTrigramIndexTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    // rebuilds run when the test runs them, not on a thread of their own
+    private final List<Runnable> rebuilds = new ArrayList<>();
+
+    private BookTrigramIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BookTrigramIndex(bookRepository, rebuilds::add);
+        when(bookRepository.findAllSearchFields()).thenReturn(List.of(
+                book(1L, "Clean Code", "29.99"),
+                book(2L, "The Clean Coder", "19.99"),
+                book(3L, "Murder on the Orient Express", "9.99")));
+        when(bookRepository.findAllAuthorNames()).thenReturn(List.of(
+                new BookAuthorName(1L, "Robert C. Martin"),
+                new BookAuthorName(2L, "Robert C. Martin"),
+                new BookAuthorName(3L, "Agatha Christie")));
+        index.rebuild();
+    }
+
+    @Test
+    void shouldFindTitlesByCaseInsensitiveSubstring() {
+        BookTrigramIndex.Hits hits = index.search(BookTrigramIndex.Field.TITLE, "CLEAN cod", PageRequest.of(0, 10, Sort.by("id")));
+
+        assertThat(hits.ids()).containsExactly(1L, 2L);
+        assertThat(hits.total()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotMatchTrigramsWithoutTheSubstring() {
+        // every trigram of "code r" is in "The Clean Coder" except the one with the space
+        assertThat(index.search(BookTrigramIndex.Field.TITLE, "code r", PageRequest.of(0, 10)).ids()).isEmpty();
+        assertThat(index.search(BookTrigramIndex.Field.AUTHOR, "martinagatha", PageRequest.of(0, 10)).ids()).isEmpty();
+    }
+
+    @Test
+    void shouldSortAndPageMatches() {
+        BookTrigramIndex.Hits hits = index.search(BookTrigramIndex.Field.AUTHOR, "rt", PageRequest.of(1, 1, Sort.by("price").descending()));
+
+        assertThat(hits.ids()).containsExactly(2L);
+        assertThat(hits.total()).isEqualTo(2);
+        assertThatThrownBy(() -> index.search(BookTrigramIndex.Field.AUTHOR, "rt", PageRequest.of(0, 1, Sort.by("authors"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldApplyCommittedChanges() {
+        when(bookRepository.findSearchFields(Set.of(3L))).thenReturn(List.of(book(3L, "Clean Murder", "9.99")));
+        when(bookRepository.findAuthorNames(Set.of(3L))).thenReturn(List.of(new BookAuthorName(3L, "Agatha Christie")));
+
+        index.onBookChanged(BookChangedEvent.changed(3L));
+        index.onBookChanged(BookChangedEvent.deleted(List.of(1L)));
+
+        assertThat(index.search(BookTrigramIndex.Field.TITLE, "clean", PageRequest.of(0, 10, Sort.by("id"))).ids()).containsExactly(2L, 3L);
+        assertThat(index.search(BookTrigramIndex.Field.TITLE, "orient", PageRequest.of(0, 10)).ids()).isEmpty();
+    }
+
+    @Test
+    void shouldDropEmptyPostingLists() {
+        int titleTrigrams = index.postingLists(BookTrigramIndex.Field.TITLE);
+
+        index.onBookChanged(BookChangedEvent.deleted(List.of(3L)));
+
+        // 26 trigrams in "murder on the orient express", 3 of them also in "the clean coder"
+        assertThat(index.postingLists(BookTrigramIndex.Field.TITLE)).isEqualTo(titleTrigrams - 23);
+    }
+
+    @Test
+    void shouldRebuildInBackgroundAfterCatalogWideChanges() {
+        when(bookRepository.findAllAuthorNames()).thenReturn(List.of(new BookAuthorName(3L, "Dame Agatha Christie")));
+
+        index.onBookChanged(BookChangedEvent.everything());
+        index.onBookChanged(BookChangedEvent.everything());
+
+        // the previous index answers until the rebuild has run
+        assertThat(index.search(BookTrigramIndex.Field.AUTHOR, "dame", PageRequest.of(0, 10)).ids()).isEmpty();
+        assertThat(rebuilds).hasSize(1);
+        rebuilds.remove(0).run();
+        assertThat(index.search(BookTrigramIndex.Field.AUTHOR, "dame", PageRequest.of(0, 10)).ids()).containsExactly(3L);
+    }
+
+    private static BookSearchFields book(Long id, String name, String price) {
+        return new BookSearchFields(id, name, new BigDecimal(price), 1);
+    }
+}
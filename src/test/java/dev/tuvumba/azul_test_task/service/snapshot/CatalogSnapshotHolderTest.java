@@ -0,0 +1,240 @@
+package dev.tuvumba.azul_test_task.service.snapshot;
+
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.dto.AuthorDto;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.GenreDto;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.repository.AuthorRepository;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.repository.projections.BookAuthorId;
+import dev.tuvumba.azul_test_task.repository.projections.BookGenreName;
+import dev.tuvumba.azul_test_task.repository.projections.BookSnapshotFields;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CatalogSnapshotHolderTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private AuthorRepository authorRepository;
+
+    private final List<Runnable> republishes = new ArrayList<>();
+
+    private final CatalogVersion catalogVersion = new CatalogVersion();
+
+    private CatalogSnapshotHolder holder;
+
+    @BeforeEach
+    void setUp() {
+        // republishes run when the test runs them, not on a thread of their own
+        holder = new CatalogSnapshotHolder(bookRepository, authorRepository, new AuthorMapper(), catalogVersion, republishes::add, Duration.ZERO);
+        when(bookRepository.findAllSnapshotFields()).thenReturn(List.of(
+                book(3L, "Murder on the Orient Express", "9.99", 12),
+                book(1L, "Clean Code", "29.99", 5),
+                book(2L, "The Clean Coder", "19.99", 0)));
+        when(bookRepository.findAllAuthorIds()).thenReturn(List.of(
+                new BookAuthorId(1L, 10L), new BookAuthorId(2L, 10L), new BookAuthorId(3L, 20L)));
+        when(bookRepository.findAllGenreNames()).thenReturn(List.of(
+                new BookGenreName(1L, "Programming"), new BookGenreName(2L, "Programming"), new BookGenreName(3L, "Mystery")));
+        when(authorRepository.findAll()).thenReturn(List.of(
+                author(10L, "Robert C. Martin"), author(20L, "Agatha Christie"), author(30L, "No Books Yet")));
+        holder.rebuild();
+    }
+
+    @Test
+    void shouldMapBooksOutOfTheArrays() {
+        CatalogSnapshot snapshot = holder.current();
+        BookDto book = snapshot.toDto(snapshot.indexOf(1L));
+
+        assertThat(book.getName()).isEqualTo("Clean Code");
+        assertThat(book.getPrice()).isEqualTo(new BigDecimal("29.99"));
+        assertThat(book.getQuantity()).isEqualTo(5);
+        assertThat(book.getVersion()).isEqualTo(1L);
+        assertThat(book.getAuthors()).containsExactly(new AuthorDto(10L, "Robert C. Martin", null));
+        assertThat(book.getGenres()).containsExactly(new GenreDto("Programming"));
+        assertThat(snapshot.indexOf(4L)).isNegative();
+        assertThat(snapshot.authors()).containsOnlyKeys(10L, 20L);
+    }
+
+    @Test
+    void shouldFindPriceAndQuantityRanges() {
+        CatalogSnapshot snapshot = holder.current();
+
+        assertThat(ids(snapshot, snapshot.withPriceBetween(new BigDecimal("10"), new BigDecimal("29.99")))).containsExactly(2L, 1L);
+        // bounds are rounded inwards to whole cents
+        assertThat(ids(snapshot, snapshot.withPriceBetween(new BigDecimal("19.991"), new BigDecimal("1E+30")))).containsExactly(1L);
+        assertThat(ids(snapshot, snapshot.withPriceBetween(new BigDecimal("-5"), new BigDecimal("9.989")))).isEmpty();
+        assertThat(ids(snapshot, snapshot.withQuantityBetween(1, 12))).containsExactly(1L, 3L);
+    }
+
+    @Test
+    void shouldLookUpGenresAndAuthors() {
+        CatalogSnapshot snapshot = holder.current();
+
+        assertThat(ids(snapshot, snapshot.byAuthor(10L))).containsExactly(1L, 2L);
+        assertThat(ids(snapshot, snapshot.byGenre("Mystery"))).containsExactly(3L);
+        assertThat(snapshot.byAuthor(30L)).isEmpty();
+        assertThat(snapshot.byGenre("Poetry")).isEmpty();
+    }
+
+    @Test
+    void shouldSortAndPageMatches() {
+        CatalogSnapshot snapshot = holder.current();
+        int[] all = snapshot.withQuantityBetween(0, Integer.MAX_VALUE);
+
+        assertThat(ids(snapshot, snapshot.page(all, PageRequest.of(0, 2, Sort.by("price").descending())))).containsExactly(1L, 2L);
+        assertThat(ids(snapshot, snapshot.page(all, PageRequest.of(1, 2, Sort.by("price").descending())))).containsExactly(3L);
+        assertThat(ids(snapshot, snapshot.page(all, PageRequest.of(0, 3, Sort.by("name"))))).containsExactly(1L, 3L, 2L);
+        assertThat(ids(snapshot, snapshot.page(all, PageRequest.of(0, 3)))).containsExactly(1L, 2L, 3L);
+        assertThat(CatalogSnapshot.supports(Sort.by("authors"))).isFalse();
+        assertThat(CatalogSnapshot.supports(Sort.by("price", "id"))).isFalse();
+        assertThat(CatalogSnapshot.supports(Sort.by(Sort.Order.by("name").ignoreCase()))).isFalse();
+    }
+
+    @Test
+    void shouldPublishNewSnapshotAfterCommittedChanges() {
+        CatalogSnapshot before = holder.current();
+        when(bookRepository.findSnapshotFields(Set.of(3L))).thenReturn(List.of(book(3L, "Murder on the Orient Express", "4.99", 11)));
+        when(bookRepository.findAuthorIds(Set.of(3L))).thenReturn(List.of(new BookAuthorId(3L, 20L), new BookAuthorId(3L, 30L)));
+        when(bookRepository.findGenreNames(Set.of(3L))).thenReturn(List.of(new BookGenreName(3L, "Mystery")));
+        when(authorRepository.findAllById(anyCollection())).thenReturn(List.of(author(20L, "Agatha Christie"), author(30L, "No Books Yet")));
+
+        holder.onBookChanged(BookChangedEvent.changed(3L));
+        holder.onBookChanged(BookChangedEvent.deleted(List.of(1L)));
+        // the committing threads only record the change
+        assertThat(holder.current()).isSameAs(before);
+        verifyNoMoreInteractions(bookRepository, authorRepository);
+
+        // both writes are taken together by one republish
+        assertThat(republishes).hasSize(1);
+        republishes.remove(0).run();
+
+        CatalogSnapshot after = holder.current();
+        assertThat(after.size()).isEqualTo(2);
+        assertThat(after.indexOf(1L)).isNegative();
+        assertThat(after.toDto(after.indexOf(3L)).getPrice()).isEqualTo(new BigDecimal("4.99"));
+        assertThat(ids(after, after.byAuthor(30L))).containsExactly(3L);
+        // readers holding the previous snapshot still see it whole
+        assertThat(before.size()).isEqualTo(3);
+        assertThat(before.toDto(before.indexOf(3L)).getPrice()).isEqualTo(new BigDecimal("9.99"));
+    }
+
+    @Test
+    void shouldAskForAnotherRepublishForChangesDuringOne() {
+        when(bookRepository.findSnapshotFields(Set.of(2L))).thenReturn(List.of(book(2L, "The Clean Coder", "19.99", 1)));
+        when(bookRepository.findAuthorIds(Set.of(2L))).thenReturn(List.of(new BookAuthorId(2L, 10L)));
+        when(bookRepository.findGenreNames(Set.of(2L))).thenReturn(List.of(new BookGenreName(2L, "Programming")));
+        when(authorRepository.findAllById(anyCollection())).thenReturn(List.of(author(10L, "Robert C. Martin")));
+
+        holder.onBookChanged(BookChangedEvent.deleted(List.of(3L)));
+        Runnable first = republishes.remove(0);
+        first.run();
+        holder.onBookChanged(BookChangedEvent.changed(2L));
+
+        assertThat(republishes).hasSize(1);
+        republishes.remove(0).run();
+        CatalogSnapshot after = holder.current();
+        assertThat(after.indexOf(3L)).isNegative();
+        assertThat(after.toDto(after.indexOf(2L)).getQuantity()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRebuildAfterCatalogWideChanges() {
+        when(authorRepository.findAll()).thenReturn(List.of(
+                author(10L, "Uncle Bob"), author(20L, "Agatha Christie")));
+
+        String listTag = catalogVersion.eTag();
+        String bookTag = catalogVersion.bookETag(1, 0);
+        holder.onBookChanged(BookChangedEvent.changed(1L));
+        holder.onBookChanged(BookChangedEvent.everything());
+        catalogVersion.onBookChanged(BookChangedEvent.everything());
+
+        // the tags change with the snapshot and not before it
+        assertThat(catalogVersion.eTag()).isEqualTo(listTag);
+        assertThat(catalogVersion.bookETag(1, 0)).isEqualTo(bookTag);
+        republishes.remove(0).run();
+        assertThat(catalogVersion.eTag()).isNotEqualTo(listTag);
+        assertThat(catalogVersion.bookETag(1, 0)).isNotEqualTo(bookTag);
+
+        CatalogSnapshot after = holder.current();
+        assertThat(after.toDto(after.indexOf(1L)).getAuthors()).containsExactly(new AuthorDto(10L, "Uncle Bob", null));
+        assertThat(republishes).isEmpty();
+    }
+
+    @Test
+    void shouldReadFromDatabaseUntilRebuiltAfterFailedRepublish() {
+        when(bookRepository.findSnapshotFields(Set.of(2L))).thenThrow(new QueryTimeoutException("timed out"));
+        String listTag = catalogVersion.eTag();
+
+        holder.onBookChanged(BookChangedEvent.changed(2L));
+        republishes.remove(0).run();
+
+        // readers go to the database, whose state the tags may no longer match
+        assertThat(holder.current()).isNull();
+        assertThat(catalogVersion.eTag()).isNotEqualTo(listTag);
+
+        // a rebuild is retried without waiting for the next write
+        assertThat(republishes).hasSize(1);
+        republishes.remove(0).run();
+        assertThat(holder.current().size()).isEqualTo(3);
+        assertThat(republishes).isEmpty();
+    }
+
+    @Test
+    void shouldMeasureMemoryPerBook() {
+        List<CatalogSnapshot.Row> rows = new ArrayList<>();
+        for (long id = 1; id <= 10_000; id++) {
+            rows.add(new CatalogSnapshot.Row(id, "Book number " + id, 1999, 3, 0, new long[]{id % 100}, new String[]{"Genre " + id % 10}));
+        }
+        CatalogSnapshot snapshot = CatalogSnapshot.of(rows, Map.of());
+
+        // 80 bytes of array slots and 56 of a 16 character name
+        assertThat(snapshot.bytes() / snapshot.size()).isBetween(120L, 200L);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        holder.bindTo(registry);
+        assertThat(registry.get("books.snapshot.books").gauge().value()).isEqualTo(3);
+        assertThat(registry.get("books.snapshot.memory.per.book").gauge().value()).isPositive();
+    }
+
+    private static List<Long> ids(CatalogSnapshot snapshot, int[] books) {
+        return Arrays.stream(books).mapToObj(book -> snapshot.toDto(book).getId()).toList();
+    }
+
+    private static BookSnapshotFields book(Long id, String name, String price, int quantity) {
+        return new BookSnapshotFields(id, name, new BigDecimal(price), quantity, 1L);
+    }
+
+    private static Author author(Long id, String displayName) {
+        Author author = new Author();
+        author.setId(id);
+        author.setDisplayName(displayName);
+        return author;
+    }
+}
@@ -0,0 +1,122 @@
+package dev.tuvumba.azul_test_task.service.snapshot;
+
+import dev.tuvumba.azul_test_task.domain.Author;
+import dev.tuvumba.azul_test_task.domain.Book;
+import dev.tuvumba.azul_test_task.domain.Genre;
+import dev.tuvumba.azul_test_task.domain.dto.BookDto;
+import dev.tuvumba.azul_test_task.domain.dto.PaginatedResponse;
+import dev.tuvumba.azul_test_task.domain.mappers.AuthorMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.BookMapper;
+import dev.tuvumba.azul_test_task.domain.mappers.GenreMapper;
+import dev.tuvumba.azul_test_task.service.BookCrudServiceImpl;
+import dev.tuvumba.azul_test_task.service.cache.BookCache;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.cache.GenreRegistry;
+import dev.tuvumba.azul_test_task.service.search.LikeBookSearch;
+import dev.tuvumba.azul_test_task.service.stock.DirectStockLedger;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ *  Checks that lookups served by the catalog snapshot do not run a single statement. <br>
+ *  Runs on an embedded database, the Postgres schema script is skipped and the schema is generated.
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "books.read-model=snapshot"
+})
+@Import({BookCrudServiceImpl.class, BookMapper.class, AuthorMapper.class, GenreMapper.class,
+        BookCache.class, CatalogVersion.class, GenreRegistry.class, LikeBookSearch.class, DirectStockLedger.class,
+        CatalogSnapshotHolder.class, SnapshotBookCrudService.class})
+class SnapshotBookCrudServiceTest {
+
+    @Autowired
+    private SnapshotBookCrudService bookService;
+
+    @Autowired
+    private CatalogSnapshotHolder snapshots;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    private Author author;
+
+    @BeforeEach
+    void setUp() {
+        Genre mystery = new Genre("Mystery", new ArrayList<>());
+        entityManager.persist(mystery);
+        author = new Author();
+        author.setDisplayName("Agatha Christie");
+        entityManager.persist(author);
+
+        for (long id = 1; id <= 20; id++) {
+            Book book = new Book();
+            book.setId(id);
+            book.setName("Book " + id);
+            book.setPrice(BigDecimal.valueOf(id));
+            book.setQuantity((int) id);
+            book.setAuthors(new ArrayList<>(List.of(author)));
+            book.setGenres(new ArrayList<>(List.of(mystery)));
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        snapshots.rebuild();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void shouldAnswerLookupsWithoutStatements() {
+        BookDto book = bookService.findById(7L).orElseThrow();
+        assertThat(book.getPrice()).isEqualByComparingTo("7");
+        assertThat(book.getAuthors()).extracting("displayName").containsExactly("Agatha Christie");
+        assertThat(bookService.findETag(7L)).hasValueSatisfying(eTag -> assertThat(eTag).startsWith("0@"));
+        assertThat(bookService.findById(99L)).isEmpty();
+
+        PaginatedResponse<BookDto> prices = bookService.findByPriceBetween(new BigDecimal("5"), new BigDecimal("10"),
+                PageRequest.of(0, 4, Sort.by("price").descending()), true);
+        assertThat(prices.getList()).extracting(BookDto::getId).containsExactly(10L, 9L, 8L, 7L);
+        assertThat(prices.getTotalElements()).isEqualTo(6);
+
+        PaginatedResponse<BookDto> quantities = bookService.findByQuantityBetween(15, 30, PageRequest.of(1, 3), false);
+        assertThat(quantities.getList()).extracting(BookDto::getId).containsExactly(18L, 19L, 20L);
+        assertThat(quantities.isHasNext()).isFalse();
+
+        assertThat(bookService.findByGenre(new Genre("Mystery", null), PageRequest.of(0, 5)).getTotalElements()).isEqualTo(20);
+        assertThat(bookService.findByAuthor(author, PageRequest.of(0, 5)).getList()).hasSize(5);
+
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    void shouldFallBackToTheDatabaseForUnsupportedSorts() {
+        PaginatedResponse<BookDto> books = bookService.findByPriceBetween(new BigDecimal("5"), new BigDecimal("10"),
+                PageRequest.of(0, 4, Sort.by("version", "id")), true);
+
+        assertThat(books.getTotalElements()).isEqualTo(6);
+        assertThat(statistics.getPrepareStatementCount()).isPositive();
+    }
+}
@@ -0,0 +1,55 @@
+package dev.tuvumba.azul_test_task.service.stock;
+
+import dev.tuvumba.azul_test_task.config.exceptions.InsufficientStockException;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DirectStockLedgerTest {
+
+    @InjectMocks
+    private DirectStockLedger stockLedger;
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void shouldReserveStockWithSingleConditionalUpdate() {
+        when(bookRepository.reserveStock(1L, 3)).thenReturn(Optional.of(7));
+
+        assertThat(stockLedger.reserve(1L, 3)).isEqualTo(7);
+        verify(bookRepository, never()).findById(any());
+        verify(bookRepository, never()).save(any());
+        verify(eventPublisher).publishEvent(BookChangedEvent.changed(1L));
+    }
+
+    @Test
+    void shouldTellInsufficientStockFromMissingBook() {
+        when(bookRepository.reserveStock(anyLong(), eq(5))).thenReturn(Optional.empty());
+        when(bookRepository.existsById(1L)).thenReturn(true);
+        when(bookRepository.existsById(2L)).thenReturn(false);
+
+        assertThatThrownBy(() -> stockLedger.reserve(1L, 5)).isInstanceOf(InsufficientStockException.class);
+        assertThatThrownBy(() -> stockLedger.reserve(2L, 5)).isInstanceOf(EntityNotFoundException.class);
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+}
@@ -0,0 +1,120 @@
+package dev.tuvumba.azul_test_task.service.stock;
+
+import dev.tuvumba.azul_test_task.config.exceptions.InsufficientStockException;
+import dev.tuvumba.azul_test_task.repository.BookRepository;
+import dev.tuvumba.azul_test_task.service.cache.CatalogVersion;
+import dev.tuvumba.azul_test_task.service.events.BookChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindStockLedgerTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private WriteBehindStockLedger stockLedger;
+
+    @BeforeEach
+    void setUp() {
+        // flushed by hand only
+        stockLedger = new WriteBehindStockLedger(bookRepository, jdbcTemplate, transactionManager, eventPublisher, new CatalogVersion(), Duration.ofHours(1), 1_000_000);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        stockLedger.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldFlushManyChangesAsOneBatchedUpdate() {
+        when(bookRepository.findQuantityById(1L)).thenReturn(Optional.of(10));
+        when(bookRepository.findQuantityById(2L)).thenReturn(Optional.of(5));
+
+        for (int i = 0; i < 4; i++) {
+            stockLedger.reserve(1L, 2);
+        }
+        stockLedger.release(1L, 1);
+        stockLedger.reserve(2L, 5);
+
+        assertThat(stockLedger.pending(1L)).isEqualTo(-7);
+        assertThatThrownBy(() -> stockLedger.reserve(2L, 1)).isInstanceOf(InsufficientStockException.class);
+        verifyNoInteractions(jdbcTemplate);
+
+        stockLedger.flush();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(WriteBehindStockLedger.APPLY_DELTA), rows.capture());
+        assertThat(rows.getValue()).containsExactly(new Object[]{-7L, 1L}, new Object[]{-5L, 2L});
+        assertThat(stockLedger.pending(1L)).isZero();
+        verify(eventPublisher).publishEvent(BookChangedEvent.changed(List.of(1L, 2L)));
+        // levels are seeded once
+        verify(bookRepository, times(1)).findQuantityById(1L);
+    }
+
+    @Test
+    void shouldSeedAgainAfterAnotherWriteToTheBook() {
+        when(bookRepository.findQuantityById(1L)).thenReturn(Optional.of(1), Optional.of(20));
+
+        stockLedger.reserve(1L, 1);
+        assertThatThrownBy(() -> stockLedger.reserve(1L, 1)).isInstanceOf(InsufficientStockException.class);
+
+        stockLedger.onBookChanged(BookChangedEvent.changed(1L));
+
+        // the admin set the stock to 20, the buffered reservation still applies on top
+        assertThat(stockLedger.reserve(1L, 1)).isEqualTo(18);
+        stockLedger.flush();
+        verify(jdbcTemplate).batchUpdate(eq(WriteBehindStockLedger.APPLY_DELTA), anyList());
+    }
+
+    @Test
+    void shouldFinishFlushWhenBookIsDeletedMeanwhile() throws InterruptedException {
+        when(bookRepository.findQuantityById(1L)).thenReturn(Optional.of(10));
+        when(bookRepository.findQuantityById(2L)).thenReturn(Optional.of(10));
+        stockLedger.reserve(1L, 1);
+        stockLedger.reserve(2L, 1);
+
+        // book 1 is deleted by another request while the batch is being written
+        Thread deletion = new Thread(() -> stockLedger.onBookChanged(BookChangedEvent.deleted(List.of(1L))));
+        when(jdbcTemplate.batchUpdate(eq(WriteBehindStockLedger.APPLY_DELTA), anyList())).thenAnswer(invocation -> {
+            deletion.start();
+            deletion.join(200);
+            return new int[]{1, 1};
+        });
+
+        stockLedger.flush();
+        deletion.join();
+
+        verify(eventPublisher).publishEvent(BookChangedEvent.changed(List.of(1L, 2L)));
+        assertThat(stockLedger.pending(1L)).isZero();
+        assertThat(stockLedger.pending(2L)).isZero();
+    }
+}